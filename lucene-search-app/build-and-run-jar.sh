@@ -12,7 +12,7 @@ mvn clean package
 # Check if JAR was created successfully
 if [ $? -eq 0 ]; then
     echo -e "\nJAR file created successfully!"
-    JAR_FILE="target/lucene-search-app-0.0.1-SNAPSHOT.jar"
+    JAR_FILE="target/lucene-search-app-0.0.1-SNAPSHOT-exec.jar"
     
     echo -e "\nRunning the JAR file..."
     echo "======================="
@@ -0,0 +1,168 @@
+package com.example.lucene;
+
+import com.example.lucene.config.LuceneIndexProperties;
+import com.example.lucene.corpus.SyntheticPathCorpus;
+import com.example.lucene.service.PathDocuments;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Runnable comparison of the NGRAM and PATH analysis modes on a synthetic corpus.
+ * For each mode it prints index size, term and posting counts, query latency, and recall@10
+ * for component-prefix and infix substring queries.
+ *
+ * Usage: AnalyzerComparisonRunner [paths (default 200000)] [queries per set (default 200)]
+ */
+public class AnalyzerComparisonRunner {
+
+    private static final int TOP_K = 10;
+    private static final int TIMED_ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException, ParseException {
+        int pathCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        List<String> paths = SyntheticPathCorpus.generate(pathCount, 8, 6, 42);
+        Random random = new Random(7);
+        List<String> prefixQueries = sampleQueries(paths, queryCount, random, false);
+        List<String> infixQueries = sampleQueries(paths, queryCount, random, true);
+
+        System.out.println("Comparing analysis modes on " + pathCount + " synthetic paths");
+        System.out.println("===========================================");
+
+        for (LuceneIndexProperties.Analysis analysis : LuceneIndexProperties.Analysis.values()) {
+            compare(analysis, paths, prefixQueries, infixQueries);
+        }
+    }
+
+    private static void compare(LuceneIndexProperties.Analysis analysis, List<String> paths,
+                                List<String> prefixQueries, List<String> infixQueries)
+            throws IOException, ParseException {
+        try (Directory directory = new ByteBuffersDirectory();
+             Analyzer indexAnalyzer = PathDocuments.indexAnalyzer(analysis);
+             Analyzer queryAnalyzer = PathDocuments.queryAnalyzer(analysis)) {
+
+            long start = System.nanoTime();
+            IndexWriterConfig config = new IndexWriterConfig(indexAnalyzer);
+            try (IndexWriter writer = new IndexWriter(directory, config)) {
+                for (String path : paths) {
+                    writer.addDocument(PathDocuments.create(path));
+                }
+                writer.forceMerge(1);
+            }
+            long indexMillis = (System.nanoTime() - start) / 1_000_000;
+
+            long bytes = 0;
+            for (String file : directory.listAll()) {
+                bytes += directory.fileLength(file);
+            }
+
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                long terms = 0;
+                long postings = 0;
+                for (LeafReaderContext leaf : reader.leaves()) {
+                    // Infix grams count too; the n-gram mode indexes none
+                    for (String field : List.of(PathDocuments.CONTENT_FIELD, PathDocuments.INFIX_FIELD)) {
+                        Terms fieldTerms = leaf.reader().terms(field);
+                        if (fieldTerms != null) {
+                            terms += fieldTerms.size();
+                            postings += fieldTerms.getSumDocFreq();
+                        }
+                    }
+                }
+
+                IndexSearcher searcher = new IndexSearcher(reader);
+
+                System.out.println("\n" + analysis + " analysis");
+                System.out.printf(Locale.ROOT, "Index time: %d ms, size: %.1f MB%n", indexMillis, bytes / 1e6);
+                System.out.printf(Locale.ROOT, "Content and infix terms: %d, postings: %d (%.1f per path)%n",
+                        terms, postings, postings / (double) paths.size());
+                report("Component prefix queries", prefixQueries, paths, searcher, analysis, queryAnalyzer);
+                report("Infix queries", infixQueries, paths, searcher, analysis, queryAnalyzer);
+            }
+        }
+    }
+
+    private static void report(String name, List<String> queries, List<String> paths,
+                               IndexSearcher searcher, LuceneIndexProperties.Analysis analysis, Analyzer queryAnalyzer)
+            throws IOException, ParseException {
+        // The queries the service runs for n-gram searches
+        List<Query> parsed = new ArrayList<>();
+        for (String query : queries) {
+            parsed.add(PathDocuments.contentQuery(analysis, queryAnalyzer, query, QueryParser.Operator.OR));
+        }
+
+        // Warm up once, then time several rounds
+        for (Query query : parsed) {
+            searcher.search(query, TOP_K);
+        }
+        long start = System.nanoTime();
+        for (int round = 0; round < TIMED_ROUNDS; round++) {
+            for (Query query : parsed) {
+                searcher.search(query, TOP_K);
+            }
+        }
+        double micros = (System.nanoTime() - start) / 1e3 / (TIMED_ROUNDS * parsed.size());
+
+        double recall = 0;
+        for (int i = 0; i < parsed.size(); i++) {
+            recall += recallAtK(queries.get(i), searcher.search(parsed.get(i), TOP_K), paths, searcher);
+        }
+        System.out.printf(Locale.ROOT, "%s: %.1f us/query, recall@%d %.2f%n",
+                name, micros, TOP_K, recall / parsed.size());
+    }
+
+    /**
+     * Fraction of the top-k slots filled with paths that really contain the query,
+     * relative to how many such paths exist (capped at k).
+     */
+    private static double recallAtK(String query, TopDocs topDocs, List<String> paths, IndexSearcher searcher)
+            throws IOException {
+        String needle = query.toLowerCase(Locale.ROOT);
+        long relevant = paths.stream().filter(path -> path.toLowerCase(Locale.ROOT).contains(needle)).limit(TOP_K).count();
+        if (relevant == 0) {
+            return 1;
+        }
+        int found = 0;
+        for (String path : PathDocuments.readPaths(searcher.getIndexReader(), topDocs.scoreDocs)) {
+            if (path.toLowerCase(Locale.ROOT).contains(needle)) {
+                found++;
+            }
+        }
+        return found / (double) relevant;
+    }
+
+    /**
+     * Take a 4-character slice of a random path component, either from its start or its middle.
+     */
+    private static List<String> sampleQueries(List<String> paths, int count, Random random, boolean infix) {
+        List<String> queries = new ArrayList<>();
+        while (queries.size() < count) {
+            String[] components = paths.get(random.nextInt(paths.size())).split("/");
+            String component = components[random.nextInt(components.length)];
+            if (component.length() < 8) {
+                continue;
+            }
+            int offset = infix ? 2 + random.nextInt(component.length() - 6) : 0;
+            queries.add(component.substring(offset, offset + 4));
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.lucene.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.ngram.NGramTokenizer;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+
+import java.io.IOException;
+
+/**
+ * Infix companion to {@link PathComponentAnalyzer}.
+ *
+ * Emits every lowercased n-gram of a fixed size inside each path component, positioned at the
+ * character it starts at, so that a phrase of the grams of a query matches exactly the paths
+ * containing it. This finds queries starting in the middle of a component or word, which the
+ * edge n-grams of PathComponentAnalyzer cannot match. Grams never span '/', '\' or whitespace,
+ * but cover camelCase and snake_case boundaries.
+ *
+ * The same chain is used at index and query time. Text shorter than the gram size yields no terms.
+ */
+public class ComponentInfixAnalyzer extends Analyzer {
+    private final int gram;
+
+    /**
+     * @param gram Length of every indexed n-gram
+     */
+    public ComponentInfixAnalyzer(int gram) {
+        this.gram = gram;
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        Tokenizer tokenizer = new NGramTokenizer(gram, gram) {
+            @Override
+            protected boolean isTokenChar(int c) {
+                return c != '/' && c != '\\' && !Character.isWhitespace(c);
+            }
+        };
+        TokenStream tokenStream = new LowerCaseFilter(tokenizer);
+        tokenStream = new OffsetPositionFilter(tokenStream);
+        return new TokenStreamComponents(tokenizer, tokenStream);
+    }
+
+    /**
+     * Moves every token to the position of its start offset. Grams of neighbouring components
+     * would otherwise be adjacent, and a phrase could match across a separator.
+     */
+    private static final class OffsetPositionFilter extends TokenFilter {
+        private final OffsetAttribute offset = addAttribute(OffsetAttribute.class);
+        private final PositionIncrementAttribute increment = addAttribute(PositionIncrementAttribute.class);
+        private int lastStart;
+
+        OffsetPositionFilter(TokenStream input) {
+            super(input);
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            if (!input.incrementToken()) {
+                return false;
+            }
+            // The first token starts from position -1
+            increment.setPositionIncrement(offset.startOffset() - lastStart);
+            lastStart = offset.startOffset();
+            return true;
+        }
+
+        @Override
+        public void reset() throws IOException {
+            super.reset();
+            lastStart = -1;
+        }
+    }
+}
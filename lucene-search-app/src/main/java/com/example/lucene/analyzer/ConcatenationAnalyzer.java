@@ -12,21 +12,41 @@ import org.apache.lucene.analysis.core.WhitespaceTokenizer;
  * A custom analyzer that:
  * 1. Splits text on whitespace using WhitespaceTokenizer
  * 2. Removes stop words using StopFilter
- * 3. Concatenates all remaining tokens into a single token using ConcatenationTokenFilter
+ * 3. Concatenates all remaining tokens into a single token using ConcatenationTokenFilter,
+ *    cut down to a maximum length
  */
 public class ConcatenationAnalyzer extends Analyzer {
     private final CharArraySet stopWords;
     private final String delimiter;
+    private final int maxTokenLength;
+    private final ConcatenationTokenFilter.OverflowPolicy overflowPolicy;
     
     /**
-     * Create a new ConcatenationAnalyzer with custom stop words and delimiter.
+     * Create a new ConcatenationAnalyzer with custom stop words, delimiter and length limit.
      * 
      * @param stopWords CharArraySet of stop words to filter out
      * @param delimiter Delimiter to use between tokens when concatenating
+     * @param maxTokenLength Maximum length of the concatenated token in chars
+     * @param overflowPolicy How a longer concatenation is shortened
      */
-    public ConcatenationAnalyzer(CharArraySet stopWords, String delimiter) {
+    public ConcatenationAnalyzer(CharArraySet stopWords, String delimiter, int maxTokenLength,
+                                 ConcatenationTokenFilter.OverflowPolicy overflowPolicy) {
         this.stopWords = stopWords;
         this.delimiter = delimiter;
+        this.maxTokenLength = maxTokenLength;
+        this.overflowPolicy = overflowPolicy;
+    }
+    
+    /**
+     * Create a new ConcatenationAnalyzer with custom stop words and delimiter, truncating at
+     * {@link ConcatenationTokenFilter#DEFAULT_MAX_TOKEN_LENGTH}.
+     * 
+     * @param stopWords CharArraySet of stop words to filter out
+     * @param delimiter Delimiter to use between tokens when concatenating
+     */
+    public ConcatenationAnalyzer(CharArraySet stopWords, String delimiter) {
+        this(stopWords, delimiter, ConcatenationTokenFilter.DEFAULT_MAX_TOKEN_LENGTH,
+                ConcatenationTokenFilter.OverflowPolicy.TRUNCATE);
     }
     
     /**
@@ -54,17 +74,42 @@ public class ConcatenationAnalyzer extends Analyzer {
         this(EnglishAnalyzer.ENGLISH_STOP_WORDS_SET, delimiter);
     }
     
+    /**
+     * Delimiter placed between tokens when concatenating.
+     */
+    public String getDelimiter() {
+        return delimiter;
+    }
+    
+    /**
+     * An analyzer that emits the tokens this one concatenates, one by one and unshortened, for
+     * consumers that process the concatenation without building it.
+     */
+    public Analyzer separateTokens() {
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                Tokenizer tokenizer = new WhitespaceTokenizer();
+                return new TokenStreamComponents(tokenizer, tokens(tokenizer));
+            }
+        };
+    }
+    
     @Override
     protected TokenStreamComponents createComponents(String fieldName) {
-        // 1. Use WhitespaceTokenizer to split text on whitespace
         Tokenizer tokenizer = new WhitespaceTokenizer();
         
-        // 2. Apply StopFilter to remove stop words
-        TokenStream tokenStream = new StopFilter(tokenizer, stopWords);
-        
-        // 3. Apply ConcatenationTokenFilter to join remaining tokens
-        tokenStream = new ConcatenationTokenFilter(tokenStream, delimiter);
+        // Apply ConcatenationTokenFilter to join the remaining tokens
+        TokenStream tokenStream = new ConcatenationTokenFilter(tokens(tokenizer), delimiter, maxTokenLength,
+                overflowPolicy);
         
         return new TokenStreamComponents(tokenizer, tokenStream);
     }
+    
+    /**
+     * The chain shared with {@link #separateTokens()}: whitespace-separated words without stop words.
+     */
+    private TokenStream tokens(Tokenizer tokenizer) {
+        return new StopFilter(tokenizer, stopWords);
+    }
 } 
\ No newline at end of file
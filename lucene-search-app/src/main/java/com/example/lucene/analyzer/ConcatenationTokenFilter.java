@@ -4,37 +4,96 @@ import org.apache.lucene.analysis.TokenFilter;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.util.ArrayUtil;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * A TokenFilter that concatenates all tokens from the input TokenStream
  * into a single token using a configurable delimiter.
- * 
+ *
+ * Tokens are appended straight into a char buffer that is reused for every document, so once the
+ * buffer has grown to the longest output seen, filtering allocates nothing. The output is at most
+ * {@code maxTokenLength} chars; longer concatenations are cut down according to the
+ * {@link OverflowPolicy}.
+ *
  * The class is final as required by Lucene's TokenStream contract.
  */
 public final class ConcatenationTokenFilter extends TokenFilter {
+    
+    /**
+     * Longest output that always fits in an index term: IndexWriter limits terms to
+     * {@link IndexWriter#MAX_TERM_LENGTH} UTF-8 bytes, and a char takes at most 3 of them.
+     */
+    public static final int DEFAULT_MAX_TOKEN_LENGTH = IndexWriter.MAX_TERM_LENGTH / 3;
+    
+    /**
+     * What to emit when the concatenation is longer than the maximum token length.
+     */
+    public enum OverflowPolicy {
+        /** Keep the first {@code maxTokenLength} chars; long texts sharing a prefix become the same token */
+        TRUNCATE,
+        /**
+         * Keep a prefix and end with {@code '#'} and the 16 hex digit FNV-1a hash of the whole
+         * concatenation, so long texts stay distinct
+         */
+        HASH
+    }
+    
+    // '#' followed by 16 hex digits
+    private static final int HASH_SUFFIX_LENGTH = 17;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    
     private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
     private final PositionIncrementAttribute posIncrAtt = addAttribute(PositionIncrementAttribute.class);
     private boolean concatenated = false;
-    private final String delimiter;
+    private final char[] delimiter;
+    private final int maxTokenLength;
+    private final OverflowPolicy overflowPolicy;
+    
+    // Concatenation of the current document, reused across documents
+    private char[] buffer = new char[64];
+    private int length;
+    private boolean overflowed;
+    private long hash;
     
     /**
      * Create a new ConcatenationTokenFilter.
-     * 
+     *
+     * @param input          The input TokenStream
+     * @param delimiter      The delimiter to use between tokens (default: " ")
+     * @param maxTokenLength Maximum length of the concatenated token in chars
+     * @param overflowPolicy How a longer concatenation is shortened
+     * @throws IllegalArgumentException if the maximum length is too small for the policy
+     */
+    public ConcatenationTokenFilter(TokenStream input, String delimiter, int maxTokenLength,
+                                    OverflowPolicy overflowPolicy) {
+        super(input);
+        int minLength = overflowPolicy == OverflowPolicy.HASH ? HASH_SUFFIX_LENGTH + 1 : 1;
+        if (maxTokenLength < minLength) {
+            throw new IllegalArgumentException("maxTokenLength must be at least " + minLength + " for " + overflowPolicy);
+        }
+        this.delimiter = (delimiter != null ? delimiter : " ").toCharArray();
+        this.maxTokenLength = maxTokenLength;
+        this.overflowPolicy = overflowPolicy;
+    }
+    
+    /**
+     * Create a new ConcatenationTokenFilter that truncates at {@link #DEFAULT_MAX_TOKEN_LENGTH}.
+     *
      * @param input     The input TokenStream
      * @param delimiter The delimiter to use between tokens (default: " ")
      */
     public ConcatenationTokenFilter(TokenStream input, String delimiter) {
-        super(input);
-        this.delimiter = delimiter != null ? delimiter : " ";
+        this(input, delimiter, DEFAULT_MAX_TOKEN_LENGTH, OverflowPolicy.TRUNCATE);
     }
     
     /**
      * Create a new ConcatenationTokenFilter with default delimiter (" ").
-     * 
+     *
      * @param input The input TokenStream
      */
     public ConcatenationTokenFilter(TokenStream input) {
@@ -48,25 +107,32 @@ public final class ConcatenationTokenFilter extends TokenFilter {
             return false;
         }
         
-        // Collect all tokens from the input
-        List<String> tokens = new ArrayList<>();
+        // Append all tokens from the input; the term attribute is shared with the input, so it
+        // cannot hold the concatenation until the input is exhausted
+        length = 0;
+        overflowed = false;
+        hash = FNV_OFFSET_BASIS;
+        boolean first = true;
         while (input.incrementToken()) {
-            tokens.add(termAtt.toString());
+            if (!first) {
+                append(delimiter, delimiter.length);
+            }
+            append(termAtt.buffer(), termAtt.length());
+            first = false;
         }
         
         // If no tokens, we're done
-        if (tokens.isEmpty()) {
+        if (first) {
             return false;
         }
         
+        if (overflowed && overflowPolicy == OverflowPolicy.HASH) {
+            appendHash();
+        }
+        
         // Clear attributes for our new token
         clearAttributes();
-        
-        // Join all tokens with the delimiter
-        String concatenatedText = String.join(delimiter, tokens);
-        
-        // Set the term attribute with our concatenated text
-        termAtt.setEmpty().append(concatenatedText);
+        termAtt.copyBuffer(buffer, 0, length);
         
         // Set position increment to 1 (this is the first token in a new position)
         posIncrAtt.setPositionIncrement(1);
@@ -77,9 +143,52 @@ public final class ConcatenationTokenFilter extends TokenFilter {
         return true;
     }
     
+    /**
+     * Append chars up to the maximum length; what does not fit only feeds the hash.
+     */
+    private void append(char[] chars, int count) {
+        if (overflowPolicy == OverflowPolicy.HASH) {
+            long h = hash;
+            for (int i = 0; i < count; i++) {
+                h = (h ^ chars[i]) * FNV_PRIME;
+            }
+            hash = h;
+        }
+        
+        // Once something was cut, later tokens are dropped too, so the output stays a prefix
+        int fits = overflowed ? 0 : Math.min(count, maxTokenLength - length);
+        if (fits < count && !overflowed) {
+            overflowed = true;
+            // Do not split a surrogate pair at the cut
+            if (fits > 0 && Character.isHighSurrogate(chars[fits - 1])) {
+                fits--;
+            }
+        }
+        if (fits > 0) {
+            buffer = ArrayUtil.grow(buffer, length + fits);
+            System.arraycopy(chars, 0, buffer, length, fits);
+            length += fits;
+        }
+    }
+    
+    /**
+     * Replace the end of a cut concatenation with the hash of all of it.
+     */
+    private void appendHash() {
+        length = Math.min(length, maxTokenLength - HASH_SUFFIX_LENGTH);
+        if (length > 0 && Character.isHighSurrogate(buffer[length - 1])) {
+            length--;
+        }
+        buffer = ArrayUtil.grow(buffer, length + HASH_SUFFIX_LENGTH);
+        buffer[length++] = '#';
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            buffer[length++] = HEX_DIGITS[(int) (hash >>> shift) & 0xf];
+        }
+    }
+    
     @Override
     public void reset() throws IOException {
         super.reset();
         concatenated = false;
     }
-} 
\ No newline at end of file
+}
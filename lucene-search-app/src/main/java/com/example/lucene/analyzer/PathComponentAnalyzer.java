@@ -0,0 +1,77 @@
+package com.example.lucene.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.FlattenGraphFilter;
+import org.apache.lucene.analysis.miscellaneous.TruncateTokenFilter;
+import org.apache.lucene.analysis.miscellaneous.WordDelimiterGraphFilter;
+import org.apache.lucene.analysis.ngram.EdgeNGramTokenFilter;
+import org.apache.lucene.analysis.util.CharTokenizer;
+
+/**
+ * Path-aware alternative to {@link CustomNGramAnalyzer}.
+ *
+ * Instead of sliding n-grams across the whole path, it:
+ * 1. Splits the path into components on '/', '\' and whitespace
+ * 2. Splits components on '.', '_', '-', camelCase and letter/digit boundaries with WordDelimiterGraphFilter
+ * 3. Lowercases the parts
+ * 4. At index time, emits edge n-grams (prefixes) of every part and keeps the part itself
+ *
+ * A query part therefore matches any indexed component or word it is a prefix of, while grams
+ * never span a separator. At query time parts are only truncated to maxGram, so they line up
+ * with the longest indexed prefix. Queries starting inside a component are left to
+ * {@link ComponentInfixAnalyzer}.
+ */
+public class PathComponentAnalyzer extends Analyzer {
+    private static final int INDEX_FLAGS = WordDelimiterGraphFilter.GENERATE_WORD_PARTS
+            | WordDelimiterGraphFilter.GENERATE_NUMBER_PARTS
+            | WordDelimiterGraphFilter.SPLIT_ON_CASE_CHANGE
+            | WordDelimiterGraphFilter.SPLIT_ON_NUMERICS
+            | WordDelimiterGraphFilter.PRESERVE_ORIGINAL;
+
+    // Without PRESERVE_ORIGINAL the query side is a plain token sequence rather than a graph
+    private static final int QUERY_FLAGS = INDEX_FLAGS & ~WordDelimiterGraphFilter.PRESERVE_ORIGINAL;
+
+    private final int minGram;
+    private final int maxGram;
+    private final boolean forIndexing;
+
+    /**
+     * @param minGram     Shortest prefix indexed for each part
+     * @param maxGram     Longest prefix indexed for each part; longer query parts are truncated to it
+     * @param forIndexing true for the index-time chain (edge n-grams), false for the query-time chain
+     */
+    public PathComponentAnalyzer(int minGram, int maxGram, boolean forIndexing) {
+        this.minGram = minGram;
+        this.maxGram = maxGram;
+        this.forIndexing = forIndexing;
+    }
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        // 1. Split into path components
+        Tokenizer tokenizer = CharTokenizer.fromSeparatorCharPredicate(
+                c -> c == '/' || c == '\\' || Character.isWhitespace(c));
+
+        // 2. Split components into words
+        TokenStream tokenStream = new WordDelimiterGraphFilter(
+                tokenizer, forIndexing ? INDEX_FLAGS : QUERY_FLAGS, null);
+
+        // 3. Lowercase after the case-change split
+        tokenStream = new LowerCaseFilter(tokenStream);
+
+        if (forIndexing) {
+            // The indexer cannot consume token graphs
+            tokenStream = new FlattenGraphFilter(tokenStream);
+
+            // 4. Prefixes of every part, keeping parts shorter or longer than the gram range
+            tokenStream = new EdgeNGramTokenFilter(tokenStream, minGram, maxGram, true);
+        } else {
+            tokenStream = new TruncateTokenFilter(tokenStream, maxGram);
+        }
+
+        return new TokenStreamComponents(tokenizer, tokenStream);
+    }
+}
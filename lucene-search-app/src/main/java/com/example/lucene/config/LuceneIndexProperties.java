@@ -0,0 +1,524 @@
+package com.example.lucene.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index settings bound from the {@code lucene.index.*} properties.
+ */
+@ConfigurationProperties(prefix = "lucene.index")
+public class LuceneIndexProperties {
+
+    /**
+     * Where the index lives.
+     */
+    public enum Storage {
+        /** Heap-resident ByteBuffersDirectory, rebuilt on every start */
+        MEMORY,
+        /** On-disk MMapDirectory, reopened on start and only rebuilt when missing or corrupt */
+        MMAP
+    }
+
+    /**
+     * How file paths are broken into terms.
+     */
+    public enum Analysis {
+        /** 2..10 character n-grams across the whole path (CustomNGramAnalyzer) */
+        NGRAM,
+        /** Edge n-grams of path components and camelCase/snake_case words (PathComponentAnalyzer) */
+        PATH
+    }
+
+    /**
+     * Order in which each segment keeps its documents.
+     */
+    public enum IndexSort {
+        /** Insertion order */
+        NONE,
+        /** Shallowest paths first, shorter paths first within a depth; depth-ordered searches stop early */
+        DEPTH
+    }
+
+    private Storage storage = Storage.MEMORY;
+
+    private Analysis analysis = Analysis.NGRAM;
+
+    private IndexSort indexSort = IndexSort.NONE;
+
+    private Path path = Paths.get("lucene-index");
+
+    private boolean verifyChecksumsOnOpen = false;
+
+    private List<Path> roots = new ArrayList<>();
+
+    private String importSnapshot;
+
+    private int subsequenceMaxCandidates = 500;
+
+    private int resultCacheSize = 10_000;
+
+    private int fuzzyMaxExpansions = 200;
+
+    private int autoMinHits = 1;
+
+    private int maxLimit = 1000;
+
+    private Duration searchTimeout = Duration.ofSeconds(2);
+
+    private int maxBatchSize = 100;
+
+    private int searchThreads = Runtime.getRuntime().availableProcessors();
+
+    private int sliceThreads = Runtime.getRuntime().availableProcessors();
+
+    private int sliceMaxDocs = 250_000;
+
+    private int sliceMaxSegments = 5;
+
+    private Duration refreshInterval = Duration.ofSeconds(1);
+
+    private Duration commitInterval = Duration.ofMinutes(1);
+
+    private Duration suggestRebuildInterval = Duration.ofSeconds(30);
+
+    private final Ingest ingest = new Ingest();
+
+    private final Watch watch = new Watch();
+
+    private final Shards shards = new Shards();
+
+    private final Admission admission = new Admission();
+
+    public Storage getStorage() {
+        return storage;
+    }
+
+    public void setStorage(Storage storage) {
+        this.storage = storage;
+    }
+
+    public Analysis getAnalysis() {
+        return analysis;
+    }
+
+    public void setAnalysis(Analysis analysis) {
+        this.analysis = analysis;
+    }
+
+    /**
+     * Document order within segments. Changing it rebuilds the index.
+     */
+    public IndexSort getIndexSort() {
+        return indexSort;
+    }
+
+    public void setIndexSort(IndexSort indexSort) {
+        this.indexSort = indexSort;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public void setPath(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Whether opening an existing on-disk index should verify the checksum of every
+     * index file. This reads the whole index once, so it is off by default.
+     */
+    public boolean isVerifyChecksumsOnOpen() {
+        return verifyChecksumsOnOpen;
+    }
+
+    public void setVerifyChecksumsOnOpen(boolean verifyChecksumsOnOpen) {
+        this.verifyChecksumsOnOpen = verifyChecksumsOnOpen;
+    }
+
+    /**
+     * Directories to crawl and index. When empty, a small built-in sample corpus is indexed.
+     */
+    public List<Path> getRoots() {
+        return roots;
+    }
+
+    public void setRoots(List<Path> roots) {
+        this.roots = roots;
+    }
+
+    /**
+     * Index snapshot archive to start from when there is no usable local index: a file path or an
+     * http(s) URL, such as another instance's {@code /index/snapshot}. Null builds the index by crawling.
+     */
+    public String getImportSnapshot() {
+        return importSnapshot;
+    }
+
+    public void setImportSnapshot(String importSnapshot) {
+        this.importSnapshot = importSnapshot;
+    }
+
+    /**
+     * Matching paths the subsequence matcher scores per query before it stops walking.
+     */
+    public int getSubsequenceMaxCandidates() {
+        return subsequenceMaxCandidates;
+    }
+
+    public void setSubsequenceMaxCandidates(int subsequenceMaxCandidates) {
+        this.subsequenceMaxCandidates = subsequenceMaxCandidates;
+    }
+
+    /**
+     * Number of search results kept in the result cache; 0 turns the cache off.
+     */
+    public int getResultCacheSize() {
+        return resultCacheSize;
+    }
+
+    public void setResultCacheSize(int resultCacheSize) {
+        this.resultCacheSize = resultCacheSize;
+    }
+
+    /**
+     * Number of index terms all fuzzy clauses of one query may expand into together.
+     */
+    public int getFuzzyMaxExpansions() {
+        return fuzzyMaxExpansions;
+    }
+
+    public void setFuzzyMaxExpansions(int fuzzyMaxExpansions) {
+        this.fuzzyMaxExpansions = fuzzyMaxExpansions;
+    }
+
+    /**
+     * Paths a tier of an auto search must find to answer it, capped at the search limit; with
+     * fewer, the next tier runs.
+     */
+    public int getAutoMinHits() {
+        return autoMinHits;
+    }
+
+    public void setAutoMinHits(int autoMinHits) {
+        this.autoMinHits = autoMinHits;
+    }
+
+    /**
+     * Largest number of paths a single search may ask for.
+     */
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Time a single search may take, including its wait for a slot; rewriting and weight creation
+     * stop and collecting returns the hits found so far once it has passed. Zero lets searches run
+     * to completion.
+     */
+    public Duration getSearchTimeout() {
+        return searchTimeout;
+    }
+
+    public void setSearchTimeout(Duration searchTimeout) {
+        this.searchTimeout = searchTimeout;
+    }
+
+    /**
+     * Largest number of searches accepted in one batch request.
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Threads running the searches of batch requests in parallel.
+     */
+    public int getSearchThreads() {
+        return searchThreads;
+    }
+
+    public void setSearchThreads(int searchThreads) {
+        this.searchThreads = searchThreads;
+    }
+
+    /**
+     * Threads searching the segment slices of a single query in parallel; 0 searches every
+     * query on the calling thread only.
+     */
+    public int getSliceThreads() {
+        return sliceThreads;
+    }
+
+    public void setSliceThreads(int sliceThreads) {
+        this.sliceThreads = sliceThreads;
+    }
+
+    /**
+     * Largest number of documents in one slice searched by a slice thread.
+     */
+    public int getSliceMaxDocs() {
+        return sliceMaxDocs;
+    }
+
+    public void setSliceMaxDocs(int sliceMaxDocs) {
+        this.sliceMaxDocs = sliceMaxDocs;
+    }
+
+    /**
+     * Largest number of segments in one slice searched by a slice thread.
+     */
+    public int getSliceMaxSegments() {
+        return sliceMaxSegments;
+    }
+
+    public void setSliceMaxSegments(int sliceMaxSegments) {
+        this.sliceMaxSegments = sliceMaxSegments;
+    }
+
+    /**
+     * How often the near-real-time searcher is reopened to expose incremental changes.
+     */
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(Duration refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * How often incremental changes are committed, bounding what an on-disk index loses on a crash.
+     */
+    public Duration getCommitInterval() {
+        return commitInterval;
+    }
+
+    public void setCommitInterval(Duration commitInterval) {
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * How often the prefix suggester is rebuilt, if a path was added or removed since the last build.
+     * A rebuild sorts every distinct path component into a new FST (about 200 ms per 100k distinct
+     * components), so it runs less often than searcher refreshes.
+     */
+    public Duration getSuggestRebuildInterval() {
+        return suggestRebuildInterval;
+    }
+
+    public void setSuggestRebuildInterval(Duration suggestRebuildInterval) {
+        this.suggestRebuildInterval = suggestRebuildInterval;
+    }
+
+    public Ingest getIngest() {
+        return ingest;
+    }
+
+    public Watch getWatch() {
+        return watch;
+    }
+
+    public Shards getShards() {
+        return shards;
+    }
+
+    public Admission getAdmission() {
+        return admission;
+    }
+
+    /**
+     * Tuning for the crawl-and-index pipeline, bound from {@code lucene.index.ingest.*}.
+     */
+    public static class Ingest {
+
+        private int crawlThreads = Runtime.getRuntime().availableProcessors();
+
+        private int indexingThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        private int batchSize = 1000;
+
+        private int queueCapacity = 64;
+
+        private double ramBufferMb = 256;
+
+        public int getCrawlThreads() {
+            return crawlThreads;
+        }
+
+        public void setCrawlThreads(int crawlThreads) {
+            this.crawlThreads = crawlThreads;
+        }
+
+        public int getIndexingThreads() {
+            return indexingThreads;
+        }
+
+        public void setIndexingThreads(int indexingThreads) {
+            this.indexingThreads = indexingThreads;
+        }
+
+        /**
+         * Number of paths handed from the crawler to an indexing thread at a time.
+         */
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * Number of batches that may wait for an indexing thread before the crawler blocks.
+         */
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        /**
+         * IndexWriter RAM buffer shared by all indexing threads before a segment is flushed; every
+         * shard has a buffer of this size.
+         */
+        public double getRamBufferMb() {
+            return ramBufferMb;
+        }
+
+        public void setRamBufferMb(double ramBufferMb) {
+            this.ramBufferMb = ramBufferMb;
+        }
+    }
+
+    /**
+     * Filesystem change detection for the crawl roots, bound from {@code lucene.index.watch.*}.
+     */
+    public static class Watch {
+
+        /**
+         * How changes below the roots are detected.
+         */
+        public enum Mode {
+            /** Index is only updated by a rebuild */
+            OFF,
+            /** Platform WatchService (inotify, FSEvents, ...) */
+            NATIVE,
+            /** Periodic re-walk comparing directory modification times */
+            POLLING,
+            /** NATIVE, falling back to POLLING when watches cannot be registered */
+            AUTO
+        }
+
+        private Mode mode = Mode.AUTO;
+
+        private Duration pollInterval = Duration.ofSeconds(30);
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        public void setMode(Mode mode) {
+            this.mode = mode;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+    }
+
+    /**
+     * Partitioning of the index into independent shards, bound from {@code lucene.index.shards.*}.
+     */
+    public static class Shards {
+
+        /**
+         * Which shard a path is indexed in.
+         */
+        public enum Routing {
+            /** Hash of the whole path; spreads paths evenly, every query searches every shard */
+            HASH,
+            /**
+             * Hash of the first path component below the root (of the first component when no
+             * roots are configured); each top-level directory lives in one shard, so queries
+             * scoped to a directory below it search only that shard
+             */
+            TOP_LEVEL
+        }
+
+        private int count = 1;
+
+        private Routing routing = Routing.HASH;
+
+        /**
+         * Number of shards, each with its own directory, IndexWriter and searcher. With more than one,
+         * an on-disk index keeps shard {@code i} in the {@code shard-i} subdirectory of the index path.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public Routing getRouting() {
+            return routing;
+        }
+
+        public void setRouting(Routing routing) {
+            this.routing = routing;
+        }
+    }
+
+    /**
+     * Limits on concurrent searches of each mode, bound from {@code lucene.index.admission.*}.
+     */
+    public static class Admission {
+
+        private int maxConcurrent = Runtime.getRuntime().availableProcessors();
+
+        private int maxQueued = 32;
+
+        /**
+         * Searches of one mode running at once; 0 removes the limit.
+         */
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        /**
+         * Searches of one mode that may wait for a slot; more are rejected right away.
+         */
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+    }
+}
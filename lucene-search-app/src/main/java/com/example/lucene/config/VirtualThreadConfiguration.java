@@ -0,0 +1,70 @@
+package com.example.lucene.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Handles every request on its own virtual thread instead of Tomcat's fixed platform thread pool,
+ * enabled with {@code lucene.server.virtual-threads=true}.
+ *
+ * The app is compiled for Java 17, so the virtual thread executor is looked up reflectively and
+ * startup fails when the property is set on an older runtime. Async requests (streamed exports)
+ * run on virtual threads as well.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "lucene.server", name = "virtual-threads", havingValue = "true")
+public class VirtualThreadConfiguration implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+
+    private final ExecutorService executor;
+
+    public VirtualThreadConfiguration() {
+        this.executor = newVirtualThreadPerTaskExecutor();
+        logger.info("Handling requests on virtual threads");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Bean
+    public WebMvcConfigurer virtualThreadAsyncSupport() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+            }
+        };
+    }
+
+    @Override
+    public void destroy() {
+        // Tomcat only stops executors it created itself
+        executor.shutdown();
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("lucene.server.virtual-threads needs Java 21 or later, running on "
+                    + Runtime.version());
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Cannot create the virtual thread executor", e);
+        }
+    }
+}
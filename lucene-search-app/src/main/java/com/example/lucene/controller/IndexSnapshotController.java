@@ -0,0 +1,67 @@
+package com.example.lucene.controller;
+
+import com.example.lucene.service.LuceneService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serves index snapshots to replicas, enabled with {@code lucene.server.snapshot-export=true}.
+ *
+ * An export commits pending changes and streams the whole index, so the endpoint is off by
+ * default, is not open to cross-origin callers like the search endpoints, and runs one export at a
+ * time; it is meant for replicas on a trusted network.
+ */
+@RestController
+@ConditionalOnProperty(prefix = "lucene.server", name = "snapshot-export", havingValue = "true")
+public class IndexSnapshotController {
+    private static final Logger logger = LoggerFactory.getLogger(IndexSnapshotController.class);
+
+    // Seconds a client turned away while another export runs should wait before trying again
+    private static final String RETRY_AFTER_SECONDS = "10";
+
+    private final LuceneService luceneService;
+    private final AtomicBoolean exporting = new AtomicBoolean();
+
+    public IndexSnapshotController(LuceneService luceneService) {
+        this.luceneService = luceneService;
+    }
+
+    /**
+     * Download a snapshot of the index as a zip archive, for another instance to start from with
+     * {@code lucene.index.import-snapshot}. Answered 429 while another export is running.
+     */
+    @GetMapping("/index/snapshot")
+    public ResponseEntity<StreamingResponseBody> exportSnapshot() {
+        if (!exporting.compareAndSet(false, true)) {
+            logger.warn("Rejected index snapshot export: another export is running");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .build();
+        }
+        StreamingResponseBody body = outputStream -> {
+            try {
+                luceneService.exportSnapshot(outputStream);
+            } catch (IOException e) {
+                logger.error("Error exporting index snapshot: {}", e.getMessage());
+                throw e;
+            } finally {
+                exporting.set(false);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header("Content-Disposition", "attachment; filename=\"lucene-index-snapshot.zip\"")
+                .body(body);
+    }
+}
@@ -1,44 +1,226 @@
 package com.example.lucene.controller;
 
 import com.example.lucene.service.LuceneService;
+import com.example.lucene.service.SearchMode;
+import com.example.lucene.service.SearchOrder;
+import com.example.lucene.service.SearchPage;
+import com.example.lucene.service.SearchRejectedException;
+import com.example.lucene.service.SearchRequest;
+import com.example.lucene.service.SearchResultCache;
+import com.example.lucene.service.StreamingSearch;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {SearchController.NEXT_CURSOR_HEADER, SearchController.SEARCH_TIER_HEADER,
+        SearchController.PARTIAL_RESULTS_HEADER})
 public class SearchController {
     private static final Logger logger = LoggerFactory.getLogger(SearchController.class);
     
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    
+    static final String SEARCH_TIER_HEADER = "X-Search-Tier";
+    
+    static final String PARTIAL_RESULTS_HEADER = "X-Partial-Results";
+    
+    // Seconds a rejected client should wait before trying again
+    private static final String RETRY_AFTER_SECONDS = "1";
+    
+    static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
+    // Lines written between explicit flushes of a streamed response
+    private static final int STREAM_FLUSH_INTERVAL = 1000;
+    
     private final LuceneService luceneService;
+    private final JsonFactory jsonFactory;
     
     @Autowired
-    public SearchController(LuceneService luceneService) {
+    public SearchController(LuceneService luceneService, ObjectMapper objectMapper) {
         this.luceneService = luceneService;
+        this.jsonFactory = objectMapper.getFactory();
     }
     
+    /**
+     * Search for paths, optionally only below the {@code scope} directory and in {@code order}
+     * (relevance by default). The body is the page of results; when more may follow, the
+     * {@value #NEXT_CURSOR_HEADER} header carries the cursor to pass for the next page. Auto
+     * searches name the tier that answered in the {@value #SEARCH_TIER_HEADER} header. A search
+     * that ran out of time, or a subsequence search that reached its candidate cap, answers with
+     * the paths it found and {@value #PARTIAL_RESULTS_HEADER};
+     * one that could not be admitted is answered 429 if too many are waiting, or 503 if its wait
+     * ran out, both with a {@code Retry-After} header.
+     */
     @GetMapping("/search")
     public ResponseEntity<List<String>> search(
             @RequestParam String query,
-            @RequestParam(required = false, defaultValue = "false") boolean fuzzy) {
+            @RequestParam(required = false, defaultValue = "false") boolean fuzzy,
+            @RequestParam(required = false) String mode,
+            @RequestParam(required = false, defaultValue = "" + LuceneService.DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String scope,
+            @RequestParam(required = false) String order) {
         try {
-            logger.info("Searching for: {}, fuzzy: {}", query, fuzzy);
-            List<String> results = luceneService.search(query, fuzzy);
-            return ResponseEntity.ok(results);
+            // An explicit mode takes precedence over the legacy fuzzy flag
+            SearchMode searchMode = mode != null ? SearchMode.parse(mode) : fuzzy ? SearchMode.FUZZY : SearchMode.NGRAM;
+            SearchOrder searchOrder = order != null ? SearchOrder.parse(order) : SearchOrder.RELEVANCE;
+            logger.debug("Searching for: {}, mode: {}, scope: {}, order: {}", query, searchMode, scope, searchOrder);
+            SearchPage page = luceneService.searchPage(query, searchMode, limit, cursor, scope, searchOrder);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            if (page.getTier() != null) {
+                response.header(SEARCH_TIER_HEADER, page.getTier().name().toLowerCase(Locale.ROOT));
+            }
+            if (page.isPartial()) {
+                response.header(PARTIAL_RESULTS_HEADER, "true");
+            }
+            return response.body(page.getResults());
+        } catch (SearchRejectedException e) {
+            logger.warn("Rejected search for '{}': {}", query, e.getMessage());
+            return rejected(e);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected search for '{}': {}", query, e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (IOException | ParseException e) {
             logger.error("Error searching for '{}': {}", query, e.getMessage());
             return ResponseEntity.internalServerError().build();
         }
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Typeahead: complete a prefix to file and directory names, most frequent first.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<String>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(required = false, defaultValue = "" + LuceneService.DEFAULT_LIMIT) int limit) {
+        try {
+            return ResponseEntity.ok(luceneService.suggest(prefix, limit));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected suggestion for '{}': {}", prefix, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            logger.error("Error suggesting for '{}': {}", prefix, e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * Stream every matching path as newline-delimited JSON, one {@code {"path": ...}} object per line,
+     * written while hits are collected. Paths come in index order, not by score. Either a query, a
+     * scope directory, or both must be given; without a query everything in the scope is exported.
+     */
+    @GetMapping("/search/stream")
+    public ResponseEntity<StreamingResponseBody> streamSearch(
+            @RequestParam(required = false) String query,
+            @RequestParam(required = false) String mode,
+            @RequestParam(required = false) String scope) {
+        StreamingSearch search;
+        try {
+            SearchMode searchMode = mode != null ? SearchMode.parse(mode) : SearchMode.NGRAM;
+            logger.debug("Streaming search for: {}, mode: {}, scope: {}", query, searchMode, scope);
+            search = luceneService.streamSearch(query, searchMode, scope);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected streaming search for '{}': {}", query, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (ParseException e) {
+            logger.error("Error parsing streaming search for '{}': {}", query, e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+        
+        StreamingResponseBody body = outputStream -> {
+            // The container owns the response stream; the generator only flushes it
+            try (JsonGenerator generator = jsonFactory.createGenerator(outputStream)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                long count = search.writeTo(new NdjsonPathWriter(generator));
+                logger.debug("Streamed {} paths for: {}", count, query);
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+    
+    /**
+     * Run many searches in one request; results come back as one list per query, in request order.
+     * A batch that could not be admitted is answered like a single search, with 429 or 503 and a
+     * {@code Retry-After} header.
+     */
+    @PostMapping("/search/batch")
+    public ResponseEntity<List<List<String>>> searchBatch(@RequestBody List<SearchRequest> requests) {
+        try {
+            logger.debug("Batch of {} searches", requests.size());
+            return ResponseEntity.ok(luceneService.searchBatch(requests));
+        } catch (SearchRejectedException e) {
+            logger.warn("Rejected batch search: {}", e.getMessage());
+            return rejected(e);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected batch search: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IOException | ParseException e) {
+            logger.error("Error running batch of {} searches: {}", requests.size(), e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    @GetMapping("/search/cache")
+    public ResponseEntity<SearchResultCache.Stats> cacheStats() {
+        return ResponseEntity.ok(luceneService.getResultCacheStats());
+    }
+    
+    /**
+     * 429 if the search found the queue full, 503 if its wait for a slot ran out.
+     */
+    private static <T> ResponseEntity<T> rejected(SearchRejectedException e) {
+        return ResponseEntity.status(e.isQueueFull() ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .build();
+    }
+    
+    /**
+     * Writes one JSON object per line. The first line is flushed right away and later ones in
+     * batches, so clients can start consuming while the search is still collecting.
+     */
+    private static final class NdjsonPathWriter implements StreamingSearch.PathConsumer {
+        private final JsonGenerator generator;
+        private long lines;
+        
+        NdjsonPathWriter(JsonGenerator generator) {
+            this.generator = generator;
+            // Lines are terminated explicitly instead of separated by Jackson's default space
+            generator.setRootValueSeparator(null);
+        }
+        
+        @Override
+        public void accept(String path) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("path", path);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            if (lines++ % STREAM_FLUSH_INTERVAL == 0) {
+                generator.flush();
+            }
+        }
+    }
+}
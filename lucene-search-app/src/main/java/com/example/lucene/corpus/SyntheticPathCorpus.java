@@ -0,0 +1,75 @@
+package com.example.lucene.corpus;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic generator of realistic-looking file paths for benchmarks and comparisons.
+ *
+ * Paths share long directory prefixes (each level picks from a small fan-out of names),
+ * mix lowercase, camelCase and snake_case components, and end in a file name with an extension.
+ */
+public final class SyntheticPathCorpus {
+
+    private static final String[] WORDS = {
+            "lucene", "core", "analysis", "common", "queryparser", "docs", "xml", "img", "src", "main",
+            "java", "test", "resources", "index", "search", "store", "util", "codecs", "backward", "suggest",
+            "highlighter", "join", "grouping", "facet", "spatial", "sandbox", "misc", "memory", "monitor",
+            "replicator", "classification", "expressions", "benchmark", "demo", "luke", "build", "tools",
+            "plugins", "config", "internal", "api", "impl", "model", "service", "controller", "client"
+    };
+
+    private static final String[] EXTENSIONS = {
+            "java", "gif", "png", "xml", "html", "txt", "md", "gradle", "properties", "json"
+    };
+
+    private SyntheticPathCorpus() {
+    }
+
+    /**
+     * Generate distinct paths.
+     *
+     * @param count    Number of paths
+     * @param maxDepth Maximum number of directories above the file
+     * @param fanOut   Number of distinct names each directory level chooses from
+     * @param seed     Random seed; the same arguments always give the same corpus
+     */
+    public static List<String> generate(int count, int maxDepth, int fanOut, long seed) {
+        Random random = new Random(seed);
+        Set<String> paths = new LinkedHashSet<>(count * 2);
+        StringBuilder path = new StringBuilder();
+
+        while (paths.size() < count) {
+            path.setLength(0);
+            int depth = 1 + random.nextInt(maxDepth);
+            for (int level = 0; level < depth; level++) {
+                // Offsetting by level keeps each depth's vocabulary a little different
+                int word = (level * 7 + random.nextInt(fanOut)) % WORDS.length;
+                path.append(WORDS[word]).append('/');
+            }
+            path.append(fileName(random)).append('.').append(EXTENSIONS[random.nextInt(EXTENSIONS.length)]);
+            paths.add(path.toString());
+        }
+        return new ArrayList<>(paths);
+    }
+
+    private static String fileName(Random random) {
+        String first = WORDS[random.nextInt(WORDS.length)];
+        String second = WORDS[random.nextInt(WORDS.length)];
+        switch (random.nextInt(3)) {
+            case 0:
+                return capitalize(first) + capitalize(second) + random.nextInt(1000);
+            case 1:
+                return first + "_" + second + "_" + random.nextInt(1000);
+            default:
+                return first + second + random.nextInt(1000);
+        }
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
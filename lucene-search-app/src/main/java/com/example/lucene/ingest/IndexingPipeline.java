@@ -0,0 +1,178 @@
+package com.example.lucene.ingest;
+
+import com.example.lucene.service.PathDocuments;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToIntFunction;
+
+/**
+ * Crawls filesystem roots and indexes every file path into a shared IndexWriter, or into one of
+ * several shard writers.
+ *
+ * Crawler threads put batches of paths on a bounded queue and several indexing threads take
+ * them off and call {@link IndexWriter#addDocuments}. When indexing falls behind, the full
+ * queue blocks the crawler, so memory stays bounded by {@code queueCapacity * batchSize} paths.
+ */
+public class IndexingPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(IndexingPipeline.class);
+
+    // Marks the end of the crawl; each indexing thread takes exactly one
+    private static final List<String> END_OF_CRAWL = Collections.emptyList();
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 10_000;
+
+    private final List<IndexWriter> writers;
+    private final ToIntFunction<String> router;
+    private final int crawlThreads;
+    private final int indexingThreads;
+    private final int batchSize;
+    private final int queueCapacity;
+
+    public IndexingPipeline(IndexWriter writer, int crawlThreads, int indexingThreads,
+                            int batchSize, int queueCapacity) {
+        this(List.of(writer), path -> 0, crawlThreads, indexingThreads, batchSize, queueCapacity);
+    }
+
+    /**
+     * @param writers Shard writers
+     * @param router  Index into {@code writers} of the shard each path belongs to
+     */
+    public IndexingPipeline(List<IndexWriter> writers, ToIntFunction<String> router, int crawlThreads,
+                            int indexingThreads, int batchSize, int queueCapacity) {
+        this.writers = writers;
+        this.router = router;
+        this.crawlThreads = crawlThreads;
+        this.indexingThreads = indexingThreads;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Crawl and index all roots. The caller is responsible for committing the writers.
+     *
+     * @param roots Directories to crawl
+     * @return Throughput statistics for the run
+     */
+    public IngestionStats run(List<Path> roots) throws IOException {
+        BlockingQueue<List<String>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicLong indexed = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long start = System.nanoTime();
+
+        List<Thread> indexers = new ArrayList<>();
+        for (int i = 0; i < indexingThreads; i++) {
+            Thread indexer = new Thread(() -> index(queue, indexed, failure), "path-indexer-" + i);
+            indexer.start();
+            indexers.add(indexer);
+        }
+        Thread progress = new Thread(() -> logProgress(indexed, start), "path-indexer-progress");
+        progress.setDaemon(true);
+        progress.start();
+
+        ParallelPathCrawler crawler = new ParallelPathCrawler(crawlThreads, batchSize);
+        try {
+            crawler.crawl(roots, batch -> enqueue(queue, batch, failure));
+            for (int i = 0; i < indexingThreads; i++) {
+                enqueue(queue, END_OF_CRAWL, failure);
+            }
+            for (Thread indexer : indexers) {
+                indexer.join();
+            }
+        } catch (InterruptedException e) {
+            if (failure.get() == null) {
+                Thread.currentThread().interrupt();
+            }
+            failure.compareAndSet(null, e);
+            indexers.forEach(Thread::interrupt);
+        } finally {
+            progress.interrupt();
+        }
+
+        Throwable error = failure.get();
+        if (error != null) {
+            throw new IOException("Indexing pipeline failed", error);
+        }
+
+        IngestionStats stats = new IngestionStats(indexed.get(), crawler.getDirectoriesVisited(),
+                crawler.getDirectoriesSkipped(), crawler.getEntriesSkipped(), System.nanoTime() - start);
+        logger.info("Indexed {}", stats);
+        return stats;
+    }
+
+    private void enqueue(BlockingQueue<List<String>> queue, List<String> batch,
+                         AtomicReference<Throwable> failure) throws InterruptedException {
+        // Give up instead of blocking forever once an indexer has died
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) {
+                throw new InterruptedException("Indexing failed");
+            }
+        }
+    }
+
+    private void index(BlockingQueue<List<String>> queue, AtomicLong indexed, AtomicReference<Throwable> failure) {
+        try {
+            while (true) {
+                List<String> batch = queue.take();
+                if (batch == END_OF_CRAWL) {
+                    return;
+                }
+                if (writers.size() == 1) {
+                    writers.get(0).addDocuments(documents(batch));
+                } else {
+                    // Split the batch by shard; every shard writer takes its part in one call
+                    List<List<String>> shardBatches = new ArrayList<>(writers.size());
+                    for (int i = 0; i < writers.size(); i++) {
+                        shardBatches.add(new ArrayList<>());
+                    }
+                    for (String path : batch) {
+                        shardBatches.get(router.applyAsInt(path)).add(path);
+                    }
+                    for (int i = 0; i < writers.size(); i++) {
+                        if (!shardBatches.get(i).isEmpty()) {
+                            writers.get(i).addDocuments(documents(shardBatches.get(i)));
+                        }
+                    }
+                }
+                indexed.addAndGet(batch.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    private static List<Document> documents(List<String> paths) {
+        List<Document> documents = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            documents.add(PathDocuments.create(path));
+        }
+        return documents;
+    }
+
+    private void logProgress(AtomicLong indexed, long start) {
+        try {
+            while (true) {
+                Thread.sleep(PROGRESS_INTERVAL_MILLIS);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                logger.info("Indexed {} paths so far ({} paths/s)",
+                        indexed.get(), Math.round(indexed.get() / seconds));
+            }
+        } catch (InterruptedException e) {
+            // Pipeline finished
+        }
+    }
+}
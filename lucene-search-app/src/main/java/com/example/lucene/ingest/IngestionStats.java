@@ -0,0 +1,38 @@
+package com.example.lucene.ingest;
+
+/**
+ * Outcome of one {@link IndexingPipeline} run.
+ */
+public class IngestionStats {
+    private final long paths;
+    private final long directories;
+    private final long skippedDirectories;
+    private final long skippedEntries;
+    private final long elapsedNanos;
+
+    public IngestionStats(long paths, long directories, long skippedDirectories, long skippedEntries,
+                          long elapsedNanos) {
+        this.paths = paths;
+        this.directories = directories;
+        this.skippedDirectories = skippedDirectories;
+        this.skippedEntries = skippedEntries;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public double getPathsPerSecond() {
+        return elapsedNanos > 0 ? paths / (elapsedNanos / 1e9) : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d paths from %d directories (%d directories, %d entries skipped) in %.1fs, %.0f paths/s",
+                paths, directories, skippedDirectories, skippedEntries, elapsedNanos / 1e9, getPathsPerSecond());
+    }
+
+    // Getters
+    public long getPaths() { return paths; }
+    public long getDirectories() { return directories; }
+    public long getSkippedDirectories() { return skippedDirectories; }
+    public long getSkippedEntries() { return skippedEntries; }
+    public long getElapsedNanos() { return elapsedNanos; }
+}
@@ -0,0 +1,169 @@
+package com.example.lucene.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Watches roots with the platform {@link WatchService}. One watch is registered per directory,
+ * so very large trees can exhaust OS limits such as Linux's {@code max_user_watches}; in that
+ * case {@link #start()} fails and {@link PollingPathWatcher} should be used instead.
+ */
+public class NativePathWatcher implements PathWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(NativePathWatcher.class);
+
+    private final List<Path> roots;
+    private final PathChangeListener listener;
+    private final Map<WatchKey, Watched> watched = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private Thread thread;
+
+    public NativePathWatcher(List<Path> roots, PathChangeListener listener) {
+        this.roots = roots;
+        this.listener = listener;
+    }
+
+    @Override
+    public void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        try {
+            for (Path root : roots) {
+                registerTree(root, ParallelPathCrawler.rootPrefix(root), false);
+            }
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+        logger.info("Watching {} directories for changes", watched.size());
+
+        thread = new Thread(this::processEvents, "path-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Register a watch on every directory below {@code directory}. When {@code report} is set,
+     * the files found along the way are reported as created; this covers directories that were
+     * moved in or filled before their watch was in place.
+     */
+    private void registerTree(Path directory, String prefix, boolean report) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                // A directory moved within the roots gets its old key back, which keeps reporting
+                // the old path as its watchable; the entry is replaced to hold the new one
+                WatchKey key = dir.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+                watched.put(key, new Watched(dir, prefixOf(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (report && attrs.isRegularFile()) {
+                    listener.pathCreated(prefixOf(file.getParent()) + file.getFileName());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                logger.warn("Not watching {}: {}", file, e.toString());
+                return FileVisitResult.CONTINUE;
+            }
+
+            private String prefixOf(Path dir) {
+                String relative = directory.relativize(dir).toString().replace(File.separatorChar, '/');
+                return relative.isEmpty() ? prefix : prefix + relative + "/";
+            }
+        });
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Watched entry = watched.get(key);
+            if (entry == null) {
+                key.cancel();
+                continue;
+            }
+            // Not key.watchable(), which still names the directory's path when it was first registered
+            Path directory = entry.directory;
+            String prefix = entry.prefix;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                try {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Events were dropped; re-report everything below this directory
+                        logger.warn("Watch events lost for {}, rescanning it", directory);
+                        registerTree(directory, prefix, true);
+                        continue;
+                    }
+
+                    Path name = (Path) event.context();
+                    Path child = directory.resolve(name);
+                    String path = prefix + name;
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                        listener.pathDeleted(path);
+                    } else if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                        registerTree(child, path + "/", true);
+                    } else if (Files.isRegularFile(child, LinkOption.NOFOLLOW_LINKS)) {
+                        listener.pathCreated(path);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Failed to apply change in {}: {}", directory, e.toString());
+                }
+            }
+
+            if (!key.reset()) {
+                // The directory itself is gone; its deletion is reported by the parent's watch
+                watched.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Current location of a watched directory, on disk and as a path prefix.
+     */
+    private static final class Watched {
+        final Path directory;
+        final String prefix;
+
+        Watched(Path directory, String prefix) {
+            this.directory = directory;
+            this.prefix = prefix;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.lucene.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Walks directory trees in parallel on a ForkJoinPool, one task per directory, and hands
+ * the regular files it finds to a {@link BatchSink} in batches.
+ *
+ * Paths are emitted relative to the parent of each root and always use '/' as the separator,
+ * so crawling {@code /repos/lucene} yields paths such as {@code lucene/core/build.gradle}.
+ * Symbolic links are not followed.
+ */
+public class ParallelPathCrawler {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelPathCrawler.class);
+
+    /**
+     * Receives batches of crawled paths. Blocking in {@link #accept} throttles the crawl.
+     */
+    @FunctionalInterface
+    public interface BatchSink {
+        void accept(List<String> batch) throws InterruptedException;
+    }
+
+    private final int threads;
+    private final int batchSize;
+    private final AtomicLong directoriesVisited = new AtomicLong();
+    private final AtomicLong directoriesSkipped = new AtomicLong();
+    private final AtomicLong entriesSkipped = new AtomicLong();
+
+    public ParallelPathCrawler(int threads, int batchSize) {
+        this.threads = threads;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Crawl all roots and return once every directory has been visited.
+     */
+    public void crawl(List<Path> roots, BatchSink sink) throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<DirectoryTask> tasks = new ArrayList<>();
+            for (Path root : roots) {
+                tasks.add(new DirectoryTask(root, rootPrefix(root), sink));
+            }
+            for (DirectoryTask task : tasks) {
+                pool.execute(task);
+            }
+            for (DirectoryTask task : tasks) {
+                task.join();
+            }
+        } catch (SinkInterruptedException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * The prefix under which paths below {@code root} are emitted: the root's own name and a '/'.
+     */
+    public static String rootPrefix(Path root) {
+        Path name = root.toAbsolutePath().normalize().getFileName();
+        return name != null ? name + "/" : "";
+    }
+
+    public long getDirectoriesVisited() {
+        return directoriesVisited.get();
+    }
+
+    public long getDirectoriesSkipped() {
+        return directoriesSkipped.get();
+    }
+
+    /**
+     * Entries of readable directories whose attributes could not be read, e.g. files deleted
+     * during the crawl.
+     */
+    public long getEntriesSkipped() {
+        return entriesSkipped.get();
+    }
+
+    private final class DirectoryTask extends RecursiveAction {
+        private final Path directory;
+        private final String prefix;
+        private final BatchSink sink;
+
+        DirectoryTask(Path directory, String prefix, BatchSink sink) {
+            this.directory = directory;
+            this.prefix = prefix;
+            this.sink = sink;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            List<String> batch = new ArrayList<>();
+
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        // Only this entry is lost; its siblings are still crawled
+                        entriesSkipped.incrementAndGet();
+                        logger.warn("Skipping {}: {}", entry, e.toString());
+                        continue;
+                    }
+                    String name = entry.getFileName().toString();
+
+                    if (attributes.isDirectory()) {
+                        DirectoryTask subdirectory = new DirectoryTask(entry, prefix + name + "/", sink);
+                        subdirectory.fork();
+                        subdirectories.add(subdirectory);
+                    } else if (attributes.isRegularFile()) {
+                        batch.add(prefix + name);
+                        if (batch.size() >= batchSize) {
+                            emit(batch);
+                            batch = new ArrayList<>();
+                        }
+                    }
+                }
+                directoriesVisited.incrementAndGet();
+            } catch (IOException | DirectoryIteratorException e) {
+                // Unreadable directories (permissions, vanished mounts) are skipped, not fatal
+                directoriesSkipped.incrementAndGet();
+                logger.warn("Skipping directory {}: {}", directory, e.toString());
+            }
+
+            if (!batch.isEmpty()) {
+                emit(batch);
+            }
+            for (DirectoryTask subdirectory : subdirectories) {
+                subdirectory.join();
+            }
+        }
+
+        private void emit(List<String> batch) {
+            try {
+                sink.accept(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SinkInterruptedException(e);
+            }
+        }
+    }
+
+    /**
+     * Carries an interrupt out of a ForkJoin task, which cannot throw checked exceptions.
+     */
+    private static final class SinkInterruptedException extends RuntimeException {
+        SinkInterruptedException(InterruptedException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized InterruptedException getCause() {
+            return (InterruptedException) super.getCause();
+        }
+    }
+}
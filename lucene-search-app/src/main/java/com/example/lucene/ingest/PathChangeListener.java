@@ -0,0 +1,21 @@
+package com.example.lucene.ingest;
+
+import java.io.IOException;
+
+/**
+ * Receives filesystem changes from a {@link PathWatcher}. Paths use the same root-relative,
+ * '/' separated form that {@link ParallelPathCrawler} produces.
+ */
+public interface PathChangeListener {
+
+    /**
+     * A regular file appeared, either newly created or as the target of a rename.
+     */
+    void pathCreated(String path) throws IOException;
+
+    /**
+     * A file or a whole directory disappeared. Watchers cannot always tell which one it was,
+     * so a deletion applies to the path itself and to everything below it.
+     */
+    void pathDeleted(String path) throws IOException;
+}
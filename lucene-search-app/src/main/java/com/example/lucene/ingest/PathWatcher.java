@@ -0,0 +1,15 @@
+package com.example.lucene.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Turns filesystem changes below a set of roots into {@link PathChangeListener} calls.
+ */
+public interface PathWatcher extends Closeable {
+
+    /**
+     * Start watching. Changes that happened before this call are not reported.
+     */
+    void start() throws IOException;
+}
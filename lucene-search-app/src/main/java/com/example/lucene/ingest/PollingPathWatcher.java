@@ -0,0 +1,157 @@
+package com.example.lucene.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects changes by periodically re-walking the roots, for filesystems where
+ * {@link java.nio.file.WatchService} is unavailable or unreliable (NFS and other network mounts).
+ *
+ * Adding, removing or renaming an entry updates its directory's modification time, so only
+ * directories whose mtime moved are listed again; unchanged directories cost one stat per poll.
+ * The last listing of every directory is kept in memory to compute the difference.
+ */
+public class PollingPathWatcher implements PathWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(PollingPathWatcher.class);
+
+    private final List<Path> roots;
+    private final PathChangeListener listener;
+    private final Duration interval;
+    private final Map<Path, DirectoryState> states = new HashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public PollingPathWatcher(List<Path> roots, PathChangeListener listener, Duration interval) {
+        this.roots = roots;
+        this.listener = listener;
+        this.interval = interval;
+    }
+
+    @Override
+    public void start() throws IOException {
+        // The first walk only records what is there; the index already holds those paths
+        for (Path root : roots) {
+            scan(root, ParallelPathCrawler.rootPrefix(root), false);
+        }
+        logger.info("Polling {} directories for changes every {}", states.size(), interval);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "path-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (IOException | RuntimeException e) {
+                logger.error("Polling for changes failed: {}", e.toString());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Walk the roots once and report every change since the previous walk.
+     */
+    public synchronized void poll() throws IOException {
+        for (Path root : roots) {
+            scan(root, ParallelPathCrawler.rootPrefix(root), true);
+        }
+    }
+
+    private void scan(Path directory, String prefix, boolean report) throws IOException {
+        DirectoryState previous = states.get(directory);
+        long modified;
+        try {
+            modified = Files.getLastModifiedTime(directory, LinkOption.NOFOLLOW_LINKS).toMillis();
+        } catch (IOException e) {
+            // Vanished between the parent's listing and now; the parent reports the deletion
+            return;
+        }
+
+        if (previous != null && previous.modified == modified) {
+            for (String subdirectory : previous.subdirectories) {
+                scan(directory.resolve(subdirectory), prefix + subdirectory + "/", report);
+            }
+            return;
+        }
+
+        DirectoryState current = new DirectoryState(modified);
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                BasicFileAttributes attributes = Files.readAttributes(
+                        entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                String name = entry.getFileName().toString();
+                if (attributes.isDirectory()) {
+                    current.subdirectories.add(name);
+                } else if (attributes.isRegularFile()) {
+                    current.files.add(name);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot list {}: {}", directory, e.toString());
+            return;
+        }
+        states.put(directory, current);
+
+        if (report) {
+            DirectoryState before = previous != null ? previous : new DirectoryState(0);
+            for (String file : current.files) {
+                if (!before.files.contains(file)) {
+                    listener.pathCreated(prefix + file);
+                }
+            }
+            for (String file : before.files) {
+                if (!current.files.contains(file)) {
+                    listener.pathDeleted(prefix + file);
+                }
+            }
+            for (String subdirectory : before.subdirectories) {
+                if (!current.subdirectories.contains(subdirectory)) {
+                    forget(directory.resolve(subdirectory));
+                    listener.pathDeleted(prefix + subdirectory);
+                }
+            }
+        }
+
+        // New subdirectories have no state yet, so all their files are reported as created
+        for (String subdirectory : current.subdirectories) {
+            scan(directory.resolve(subdirectory), prefix + subdirectory + "/", report);
+        }
+    }
+
+    private void forget(Path directory) {
+        states.keySet().removeIf(path -> path.startsWith(directory));
+    }
+
+    private static final class DirectoryState {
+        private final long modified;
+        private final Set<String> files = new HashSet<>();
+        private final Set<String> subdirectories = new HashSet<>();
+
+        DirectoryState(long modified) {
+            this.modified = modified;
+        }
+    }
+}
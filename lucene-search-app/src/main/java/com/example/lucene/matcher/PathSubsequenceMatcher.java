@@ -0,0 +1,499 @@
+package com.example.lucene.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory "go to file" matcher: finds paths that contain the query characters in order,
+ * like an IDE's file finder, so {@code lqdocspg} finds {@code lucene/queryparser/docs/xml/img/plus.gif}.
+ *
+ * Paths are kept in a trie with one node per path component, so shared directory prefixes are
+ * stored once. Every node records a bit mask of the characters that occur anywhere in its
+ * subtree. A search walks the trie while greedily consuming query characters and skips every
+ * subtree whose mask lacks one of the characters still to be matched. Matching is
+ * case-insensitive; a '/' in the query must match a component boundary.
+ *
+ * Matches are ranked by how well the query aligns with the path: hits at the start of a
+ * component or camelCase/snake_case word and runs of consecutive characters score higher,
+ * as do hits in the file name. Only the first {@code maxCandidates} matches in trie order are
+ * ranked, so for unselective queries better matches further along may be missed; such results
+ * are reported as {@linkplain Matches#isComplete() incomplete}.
+ *
+ * Safe for concurrent use; updates take a write lock.
+ */
+public class PathSubsequenceMatcher {
+
+    // Scoring weights for one matched query character
+    private static final int MATCH = 1;
+    private static final int WORD_START = 8;
+    private static final int CONSECUTIVE = 4;
+    private static final int IN_FILENAME = 2;
+
+    private final Node root = new Node("");
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int maxCandidates;
+    private int size;
+    // Incremented by every add or remove that changes the paths, so cached results can tell they are stale
+    private long generation;
+    // Deepest node level, so a search can size its path stack up front
+    private int height;
+
+    /**
+     * @param maxCandidates Number of matching paths to score before the walk stops; bounds latency for
+     *                      very unselective queries at the cost of possibly missing better-ranked matches,
+     *                      which {@link Matches#isComplete()} reports
+     */
+    public PathSubsequenceMatcher(int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * Add a '/' separated path. Adding a path twice has no effect.
+     *
+     * @return Whether the path was not present before
+     */
+    public boolean add(String path) {
+        lock.writeLock().lock();
+        try {
+            List<Node> nodes = new ArrayList<>();
+            Node node = root;
+            nodes.add(node);
+            int start = 0;
+            while (start <= path.length()) {
+                int end = path.indexOf('/', start);
+                if (end < 0) {
+                    end = path.length();
+                }
+                // Non-top-level labels carry their leading '/' so it can be matched like any other character
+                String label = start == 0 ? path.substring(0, end) : path.substring(start - 1, end);
+                node = node.child(label);
+                nodes.add(node);
+                start = end + 1;
+            }
+
+            height = Math.max(height, nodes.size() - 1);
+
+            // Every node on the way down now has the characters of the labels below it in its subtree
+            long below = 0;
+            for (int i = nodes.size() - 1; i >= 0; i--) {
+                below |= nodes.get(i).mask;
+                nodes.get(i).mask = below;
+            }
+            if (node.file) {
+                return false;
+            }
+            node.file = true;
+            size++;
+            generation++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a path, or every path below it if it names a directory.
+     * Directories left without paths are dropped, and the character masks of the directories
+     * above are narrowed to what is still below them.
+     *
+     * @return The paths that were removed
+     */
+    public List<String> remove(String path) {
+        lock.writeLock().lock();
+        try {
+            List<Node> nodes = new ArrayList<>();
+            Node node = root;
+            int start = 0;
+            while (node != null && start <= path.length()) {
+                int end = path.indexOf('/', start);
+                if (end < 0) {
+                    end = path.length();
+                }
+                String label = start == 0 ? path.substring(0, end) : path.substring(start - 1, end);
+                nodes.add(node);
+                node = node.find(label);
+                start = end + 1;
+            }
+            List<String> removed = new ArrayList<>();
+            if (node != null) {
+                node.collectFiles(path, removed);
+                size -= removed.size();
+                generation++;
+
+                // Walk back up, unlinking directories that no longer lead to a path and narrowing the rest
+                nodes.get(nodes.size() - 1).removeChild(node);
+                for (int i = nodes.size() - 1; i >= 0; i--) {
+                    Node ancestor = nodes.get(i);
+                    if (i > 0 && ancestor.isEmpty()) {
+                        nodes.get(i - 1).removeChild(ancestor);
+                    } else {
+                        ancestor.updateMask();
+                    }
+                }
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of changes to the paths so far; equal generations mean the same paths.
+     */
+    public long generation() {
+        lock.readLock().lock();
+        try {
+            return generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of trie nodes below the root, for tests.
+     */
+    int nodeCount() {
+        lock.readLock().lock();
+        try {
+            return root.countBelow();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the best-ranked paths containing the query as a case-insensitive subsequence.
+     *
+     * @param query Abbreviation such as {@code lqdocspg}; whitespace is ignored
+     * @param limit Maximum number of paths to return
+     */
+    public List<String> search(String query, int limit) {
+        return match(query, limit).getPaths();
+    }
+
+    /**
+     * Like {@link #search}, but also tells whether every match was ranked.
+     */
+    public Matches match(String query, int limit) {
+        char[] chars = normalize(query);
+        if (chars.length == 0 || limit <= 0) {
+            return new Matches(new ArrayList<>(), true);
+        }
+
+        // suffixMasks[i] holds every character that still has to be matched from query position i
+        long[] suffixMasks = new long[chars.length + 1];
+        for (int i = chars.length - 1; i >= 0; i--) {
+            suffixMasks[i] = suffixMasks[i + 1] | bit(chars[i]);
+        }
+
+        List<Candidate> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            collect(root, new Node[height + 1], 0, chars, 0, suffixMasks, candidates);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        candidates.sort(Comparator.comparingInt((Candidate candidate) -> candidate.score).reversed()
+                .thenComparingInt(candidate -> candidate.path.length())
+                .thenComparing(candidate -> candidate.path));
+        List<String> results = new ArrayList<>(Math.min(limit, candidates.size()));
+        for (int i = 0; i < candidates.size() && i < limit; i++) {
+            results.add(candidates.get(i).path);
+        }
+        // The walk stops once the cap is reached, possibly just as it ran out of matches
+        return new Matches(results, candidates.size() < maxCandidates);
+    }
+
+    private static char[] normalize(String query) {
+        StringBuilder normalized = new StringBuilder(query.length());
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString().toCharArray();
+    }
+
+    /**
+     * Depth-first walk that greedily consumes query characters along each label.
+     * Greedy leftmost matching finds a match whenever one exists; ranking is done afterwards.
+     * The path is only materialized for matches, from the stack of nodes on the way down.
+     */
+    private void collect(Node node, Node[] stack, int depth, char[] query, int matched, long[] suffixMasks,
+                         List<Candidate> candidates) {
+        stack[depth] = node;
+        char[] lower = node.lower;
+        for (int i = 0; i < lower.length && matched < query.length; i++) {
+            if (lower[i] == query[matched]) {
+                matched++;
+            }
+        }
+
+        if (matched == query.length) {
+            // Every path below here matches
+            addAll(node, stack, depth, query, candidates);
+            return;
+        }
+        long needed = suffixMasks[matched];
+        Node[] children = node.children;
+        for (int i = 0; i < node.childCount && candidates.size() < maxCandidates; i++) {
+            Node child = children[i];
+            if ((child.mask & needed) == needed) {
+                collect(child, stack, depth + 1, query, matched, suffixMasks, candidates);
+            }
+        }
+    }
+
+    private void addAll(Node node, Node[] stack, int depth, char[] query, List<Candidate> candidates) {
+        stack[depth] = node;
+        if (node.file) {
+            StringBuilder path = new StringBuilder();
+            for (int i = 1; i <= depth; i++) {
+                path.append(stack[i].label);
+            }
+            String candidate = path.toString();
+            candidates.add(new Candidate(candidate, score(candidate, query)));
+        }
+        for (int i = 0; i < node.childCount && candidates.size() < maxCandidates; i++) {
+            addAll(node.children[i], stack, depth + 1, query, candidates);
+        }
+    }
+
+    /**
+     * Best alignment score of the query against the path, computed with a small dynamic program:
+     * best[i][j] is the best score for matching the first i+1 query characters with query
+     * character i placed at path position j.
+     */
+    static int score(String path, char[] query) {
+        int n = path.length();
+        int filenameStart = path.lastIndexOf('/') + 1;
+        int[] previous = new int[n];
+        int[] current = new int[n];
+        Arrays.fill(previous, Integer.MIN_VALUE);
+
+        for (int i = 0; i < query.length; i++) {
+            Arrays.fill(current, Integer.MIN_VALUE);
+            // Best score of the previous row strictly before position j
+            int bestBefore = i == 0 ? 0 : Integer.MIN_VALUE;
+            for (int j = 0; j < n; j++) {
+                if (Character.toLowerCase(path.charAt(j)) == query[i]) {
+                    int gain = MATCH;
+                    if (isWordStart(path, j)) {
+                        gain += WORD_START;
+                    }
+                    if (j >= filenameStart) {
+                        gain += IN_FILENAME;
+                    }
+                    int best = bestBefore;
+                    if (i > 0 && j > 0 && previous[j - 1] != Integer.MIN_VALUE) {
+                        best = Math.max(best, previous[j - 1] + CONSECUTIVE);
+                    }
+                    if (best != Integer.MIN_VALUE) {
+                        current[j] = best + gain;
+                    }
+                }
+                if (i > 0 && previous[j] > bestBefore) {
+                    bestBefore = previous[j];
+                }
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        int best = 0;
+        for (int score : previous) {
+            best = Math.max(best, score);
+        }
+        return best;
+    }
+
+    private static boolean isWordStart(String path, int index) {
+        if (index == 0) {
+            return true;
+        }
+        char before = path.charAt(index - 1);
+        char c = path.charAt(index);
+        if (before == '/' || before == '.' || before == '_' || before == '-' || before == ' ') {
+            return true;
+        }
+        return Character.isUpperCase(c) && Character.isLowerCase(before);
+    }
+
+    /**
+     * Bit for a lowercase character. Letters and digits get their own bit; other characters share
+     * the remaining bits, which can only make pruning less tight, never wrong.
+     */
+    private static long bit(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return 1L << (c - 'a');
+        }
+        if (c >= '0' && c <= '9') {
+            return 1L << (26 + c - '0');
+        }
+        return 1L << (36 + c % 28);
+    }
+
+    private static final class Node {
+        // Above this many children, lookups by label go through a hash index instead of a scan
+        private static final int INDEX_THRESHOLD = 8;
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private final String label;
+        private final char[] lower;
+        // Characters of the label itself; mask adds those of the subtree
+        private final long labelMask;
+        private long mask;
+        private boolean file;
+        // Children are kept in an array for fast iteration during searches
+        private Node[] children = NO_CHILDREN;
+        private int childCount;
+        private Map<String, Node> index;
+
+        Node(String label) {
+            this.label = label;
+            this.lower = label.toLowerCase(Locale.ROOT).toCharArray();
+            long labelBits = 0;
+            for (char c : lower) {
+                labelBits |= bit(c);
+            }
+            this.labelMask = labelBits;
+            this.mask = labelBits;
+        }
+
+        /**
+         * Whether no path ends at or below this node any more.
+         */
+        boolean isEmpty() {
+            return !file && childCount == 0;
+        }
+
+        /**
+         * Recompute the mask from the label and the children's masks.
+         */
+        void updateMask() {
+            long updated = labelMask;
+            for (int i = 0; i < childCount; i++) {
+                updated |= children[i].mask;
+            }
+            mask = updated;
+        }
+
+        Node find(String label) {
+            if (index != null) {
+                return index.get(label);
+            }
+            for (int i = 0; i < childCount; i++) {
+                if (children[i].label.equals(label)) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node child(String label) {
+            Node child = find(label);
+            if (child == null) {
+                child = new Node(label);
+                if (childCount == children.length) {
+                    children = Arrays.copyOf(children, Math.max(2, childCount * 2));
+                }
+                children[childCount++] = child;
+                if (index != null) {
+                    index.put(label, child);
+                } else if (childCount > INDEX_THRESHOLD) {
+                    index = new HashMap<>();
+                    for (int i = 0; i < childCount; i++) {
+                        index.put(children[i].label, children[i]);
+                    }
+                }
+            }
+            return child;
+        }
+
+        void removeChild(Node child) {
+            for (int i = 0; i < childCount; i++) {
+                if (children[i] == child) {
+                    children[i] = children[--childCount];
+                    children[childCount] = null;
+                    break;
+                }
+            }
+            if (index != null) {
+                index.remove(child.label);
+            }
+        }
+
+        int countBelow() {
+            int count = childCount;
+            for (int i = 0; i < childCount; i++) {
+                count += children[i].countBelow();
+            }
+            return count;
+        }
+
+        /**
+         * Add the paths of this node and the nodes below it, given this node's path.
+         */
+        void collectFiles(String path, List<String> files) {
+            if (file) {
+                files.add(path);
+            }
+            for (int i = 0; i < childCount; i++) {
+                // Child labels start with their '/'
+                children[i].collectFiles(path + children[i].label, files);
+            }
+        }
+    }
+
+    /**
+     * Ranked matches of one search.
+     */
+    public static final class Matches {
+        private final List<String> paths;
+        private final boolean complete;
+
+        Matches(List<String> paths, boolean complete) {
+            this.paths = paths;
+            this.complete = complete;
+        }
+
+        /** Best-ranked matching paths, at most the limit */
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        /** Whether every matching path was ranked, rather than only the first {@code maxCandidates} found */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    private static final class Candidate {
+        private final String path;
+        private final int score;
+
+        Candidate(String path, int score) {
+            this.path = path;
+            this.score = score;
+        }
+    }
+}
@@ -2,8 +2,12 @@ package com.example.lucene.service;
 
 import com.example.lucene.analyzer.ConcatenationAnalyzer;
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
@@ -18,8 +22,10 @@ import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.ByteBuffersDirectory;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
 import org.springframework.stereotype.Component;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -27,21 +33,47 @@ import java.util.List;
 /**
  * Example class showing how to use ConcatenationAnalyzer for indexing and searching.
  * This demonstrates a practical use case of the ConcatenationTokenFilter.
+ *
+ * In {@link Mode#FINGERPRINT} mode the concatenation is not indexed as a term; its 128-bit
+ * {@link ContentFingerprint} is indexed as a two-dimensional LongPoint instead. Every document then
+ * costs the same 16 bytes in the index however long it is, and finding documents with the same
+ * stop-word-stripped content is a single point lookup rather than a parsed query.
  */
 @Component
-public class ConcatenationIndexingExample {
+public class ConcatenationIndexingExample implements Closeable {
     
     private static final String ID_FIELD = "id";
     private static final String TITLE_FIELD = "title";
     private static final String CONTENT_FIELD = "content";
     private static final String CONCATENATED_FIELD = "concatenated";
+    private static final String FINGERPRINT_FIELD = "fingerprint";
+    
+    /**
+     * How the concatenated title and content are indexed.
+     */
+    public enum Mode {
+        /** One term holding the concatenation, searched through QueryParser */
+        TERM,
+        /** A fingerprint of the full concatenation, looked up by exact match */
+        FINGERPRINT
+    }
     
     private final Directory directory;
-    private final Analyzer concatenationAnalyzer;
+    private final ConcatenationAnalyzer concatenationAnalyzer;
+    private final Analyzer fingerprintAnalyzer;
+    private final Mode mode;
     
     public ConcatenationIndexingExample() {
+        this(Mode.TERM);
+    }
+    
+    public ConcatenationIndexingExample(Mode mode) {
         this.directory = new ByteBuffersDirectory();
         this.concatenationAnalyzer = new ConcatenationAnalyzer();
+        // The same tokens the concatenation joins; the fingerprint hashes them one by one, so
+        // the concatenation is never built
+        this.fingerprintAnalyzer = concatenationAnalyzer.separateTokens();
+        this.mode = mode;
     }
     
     /**
@@ -84,7 +116,16 @@ public class ConcatenationIndexingExample {
         // This field contains all content from title and content fields,
         // but with stop words removed and all tokens concatenated into one term
         String combinedText = title + " " + content;
-        doc.add(new TextField(CONCATENATED_FIELD, combinedText, Field.Store.YES));
+        if (mode == Mode.FINGERPRINT) {
+            // Index only the fingerprint of the concatenation; store its hex form for display
+            ContentFingerprint fingerprint = fingerprint(combinedText);
+            if (fingerprint != null) {
+                doc.add(new LongPoint(FINGERPRINT_FIELD, fingerprint.getHigh(), fingerprint.getLow()));
+                doc.add(new StoredField(CONCATENATED_FIELD, fingerprint.toString()));
+            }
+        } else {
+            doc.add(new TextField(CONCATENATED_FIELD, combinedText, Field.Store.YES));
+        }
         
         writer.addDocument(doc);
     }
@@ -97,13 +138,68 @@ public class ConcatenationIndexingExample {
             return new ArrayList<>();
         }
         
-        // Create a reader
-        IndexReader reader = DirectoryReader.open(directory);
-        IndexSearcher searcher = new IndexSearcher(reader);
+        if (mode == Mode.FINGERPRINT) {
+            // Documents whose concatenation equals the query's, without parsing the query
+            ContentFingerprint fingerprint = fingerprint(queryText);
+            return fingerprint != null ? findByFingerprint(fingerprint) : new ArrayList<>();
+        }
         
         // Create query parser using the concatenation analyzer
         QueryParser parser = new QueryParser(CONCATENATED_FIELD, concatenationAnalyzer);
-        Query query = parser.parse(queryText);
+        return search(parser.parse(queryText));
+    }
+    
+    /**
+     * Find the documents whose concatenated title and content has the given fingerprint. Only
+     * available in {@link Mode#FINGERPRINT} mode.
+     *
+     * @throws IllegalStateException if the index was built in another mode
+     */
+    public List<DocumentResult> findByFingerprint(ContentFingerprint fingerprint) throws IOException {
+        if (mode != Mode.FINGERPRINT) {
+            throw new IllegalStateException("Fingerprints are only indexed in FINGERPRINT mode, not " + mode);
+        }
+        long[] point = {fingerprint.getHigh(), fingerprint.getLow()};
+        return search(LongPoint.newRangeQuery(FINGERPRINT_FIELD, point, point));
+    }
+    
+    /**
+     * Fingerprint of a text as it would be concatenated for indexing: texts that differ only in
+     * stop words or whitespace get the same fingerprint. The tokens are hashed as they are read,
+     * with the concatenation's delimiter between them, so memory use does not grow with the text.
+     *
+     * @return the fingerprint, or null if nothing is left after removing stop words
+     */
+    public ContentFingerprint fingerprint(String text) throws IOException {
+        try (TokenStream tokenStream = fingerprintAnalyzer.tokenStream(CONCATENATED_FIELD, text)) {
+            CharTermAttribute termAtt = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            ContentFingerprint.Hasher hasher = null;
+            while (tokenStream.incrementToken()) {
+                if (hasher == null) {
+                    hasher = new ContentFingerprint.Hasher();
+                } else {
+                    hasher.append(concatenationAnalyzer.getDelimiter());
+                }
+                hasher.append(termAtt.buffer(), 0, termAtt.length());
+            }
+            tokenStream.end();
+            return hasher != null ? hasher.finish() : null;
+        }
+    }
+    
+    /**
+     * Close the analyzers and the in-memory index.
+     */
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(concatenationAnalyzer, fingerprintAnalyzer, directory);
+    }
+    
+    private List<DocumentResult> search(Query query) throws IOException {
+        // Create a reader
+        IndexReader reader = DirectoryReader.open(directory);
+        IndexSearcher searcher = new IndexSearcher(reader);
         
         // Perform search
         TopDocs results = searcher.search(query, 10);
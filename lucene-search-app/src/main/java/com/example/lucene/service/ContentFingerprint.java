@@ -0,0 +1,233 @@
+package com.example.lucene.service;
+
+import org.apache.lucene.util.BytesRef;
+
+import java.util.Locale;
+
+/**
+ * 128-bit MurmurHash3 (x64 variant, seed 0) of a text, used to index and look up document content
+ * in constant space. The two halves are the hash's h1 and h2 words; {@link #toString()} prints the
+ * 16 hash bytes in the usual little-endian order, as Guava's {@code murmur3_128} does.
+ */
+public final class ContentFingerprint {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final long high;
+    private final long low;
+
+    public ContentFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Fingerprint of the UTF-8 bytes of the given text.
+     */
+    public static ContentFingerprint of(CharSequence text) {
+        return new Hasher().append(text).finish();
+    }
+
+    /**
+     * Incremental MurmurHash3_x64_128 of the UTF-8 encoding of text appended piece by piece, so a
+     * long text can be fingerprinted from its tokens without ever holding all of it. Only the
+     * current 16-byte block is buffered, and pieces may be split anywhere, even inside a surrogate pair.
+     */
+    public static final class Hasher {
+        private final byte[] block = new byte[16];
+        private int blockLength;
+        private long h1;
+        private long h2;
+        private long length;
+        // High surrogate waiting for its low half, which may come with the next append
+        private char pendingHigh;
+
+        public Hasher() {
+        }
+
+        private Hasher(Hasher other) {
+            System.arraycopy(other.block, 0, block, 0, other.blockLength);
+            blockLength = other.blockLength;
+            h1 = other.h1;
+            h2 = other.h2;
+            length = other.length;
+            pendingHigh = other.pendingHigh;
+        }
+
+        public Hasher append(CharSequence text) {
+            for (int i = 0; i < text.length(); i++) {
+                putUtf16(text.charAt(i));
+            }
+            return this;
+        }
+
+        public Hasher append(char[] chars, int offset, int count) {
+            for (int i = offset; i < offset + count; i++) {
+                putUtf16(chars[i]);
+            }
+            return this;
+        }
+
+        /**
+         * The fingerprint of everything appended so far.
+         */
+        public ContentFingerprint finish() {
+            if (pendingHigh != 0) {
+                // A trailing high surrogate is lone; finish on a copy so appending can go on
+                Hasher copy = new Hasher(this);
+                copy.putChar(copy.pendingHigh);
+                copy.pendingHigh = 0;
+                return copy.finish();
+            }
+            // Tail: the last 0..15 bytes, little-endian
+            long k1 = 0;
+            long k2 = 0;
+            for (int i = blockLength - 1; i >= 8; i--) {
+                k2 = (k2 << 8) | (block[i] & 0xffL);
+            }
+            for (int i = Math.min(blockLength, 8) - 1; i >= 0; i--) {
+                k1 = (k1 << 8) | (block[i] & 0xffL);
+            }
+            long f1 = h1 ^ mixK1(k1);
+            long f2 = h2 ^ mixK2(k2);
+
+            f1 ^= length;
+            f2 ^= length;
+            f1 += f2;
+            f2 += f1;
+            f1 = fmix64(f1);
+            f2 = fmix64(f2);
+            f1 += f2;
+            f2 += f1;
+            return new ContentFingerprint(f1, f2);
+        }
+
+        private void putUtf16(char c) {
+            if (pendingHigh != 0) {
+                char high = pendingHigh;
+                pendingHigh = 0;
+                if (Character.isLowSurrogate(c)) {
+                    putCodePoint(Character.toCodePoint(high, c));
+                    return;
+                }
+                putChar(high);
+            }
+            if (Character.isHighSurrogate(c)) {
+                pendingHigh = c;
+            } else {
+                putChar(c);
+            }
+        }
+
+        /**
+         * UTF-8 bytes of a char that is not part of a surrogate pair; a lone surrogate becomes
+         * U+FFFD, as in {@link BytesRef#BytesRef(CharSequence)}.
+         */
+        private void putChar(char c) {
+            if (c < 0x80) {
+                put(c);
+            } else if (c < 0x800) {
+                put(0xc0 | (c >> 6));
+                put(0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                put(0xef);
+                put(0xbf);
+                put(0xbd);
+            } else {
+                put(0xe0 | (c >> 12));
+                put(0x80 | ((c >> 6) & 0x3f));
+                put(0x80 | (c & 0x3f));
+            }
+        }
+
+        private void putCodePoint(int codePoint) {
+            put(0xf0 | (codePoint >> 18));
+            put(0x80 | ((codePoint >> 12) & 0x3f));
+            put(0x80 | ((codePoint >> 6) & 0x3f));
+            put(0x80 | (codePoint & 0x3f));
+        }
+
+        private void put(int b) {
+            block[blockLength++] = (byte) b;
+            length++;
+            if (blockLength == block.length) {
+                h1 ^= mixK1(readLong(block, 0));
+                h1 = Long.rotateLeft(h1, 27);
+                h1 += h2;
+                h1 = h1 * 5 + 0x52dce729;
+
+                h2 ^= mixK2(readLong(block, 8));
+                h2 = Long.rotateLeft(h2, 31);
+                h2 += h1;
+                h2 = h2 * 5 + 0x38495ab5;
+                blockLength = 0;
+            }
+        }
+    }
+
+    /**
+     * First 64 bits of the hash (h1).
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * Last 64 bits of the hash (h2).
+     */
+    public long getLow() {
+        return low;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ContentFingerprint)) {
+            return false;
+        }
+        ContentFingerprint other = (ContentFingerprint) o;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high) * 31 + Long.hashCode(low);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%016x%016x", Long.reverseBytes(high), Long.reverseBytes(low));
+    }
+
+    private static long readLong(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = (value << 8) | (data[offset + i] & 0xffL);
+        }
+        return value;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.lucene.service;
+
+import com.example.lucene.config.LuceneIndexProperties;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Turns a fuzzy search into a bounded BooleanQuery.
+ *
+ * The query is matched as a whole, by file name and by path component, against both the content
+ * and the filename field. Repeated terms become a single clause, and terms that cannot match
+ * anything the analysis mode indexes (e.g. a 15 character term against 2..10-grams) are dropped.
+ * Edit distance and prefix length grow with term length, so short terms do not expand into most
+ * of the term dictionary, and all clauses together expand into at most {@code maxExpansions}
+ * terms, which bounds the cost of rewriting the query. Auto searches cap the edit distance to try
+ * a cheaper one-edit query before the full one.
+ */
+class FuzzyQueryPlanner {
+
+    // Terms up to this length must match exactly; one edit would already match most short terms
+    private static final int EXACT_MAX_LENGTH = 2;
+    // Terms up to this length allow one edit, longer ones two
+    private static final int ONE_EDIT_MAX_LENGTH = 5;
+    // Two-edit terms must match their first character, which cuts the terms the automaton visits
+    private static final int TWO_EDIT_PREFIX_LENGTH = 1;
+    // Most edits a clause may ever allow
+    static final int MAX_EDITS = 2;
+
+    private final LuceneIndexProperties.Analysis analysis;
+    private final int maxExpansions;
+
+    /**
+     * @param analysis      Analysis mode the index was built with, which decides the indexed term lengths
+     * @param maxExpansions Number of index terms all fuzzy clauses of one query may expand into together
+     */
+    FuzzyQueryPlanner(LuceneIndexProperties.Analysis analysis, int maxExpansions) {
+        this.analysis = analysis;
+        this.maxExpansions = maxExpansions;
+    }
+
+    BooleanQuery plan(String queryText) {
+        return plan(queryText, MAX_EDITS);
+    }
+
+    /**
+     * @param editCap Most edits any clause may allow, below what its term length would allow
+     */
+    BooleanQuery plan(String queryText, int editCap) {
+        queryText = queryText.toLowerCase(Locale.ROOT);
+
+        // Insertion order keeps the whole query and the file name ahead of single components
+        Set<Term> terms = new LinkedHashSet<>();
+        terms.add(new Term(PathDocuments.CONTENT_FIELD, queryText));
+        terms.add(new Term(PathDocuments.FILENAME_FIELD, PathDocuments.extractFilename(queryText)));
+        if (queryText.contains("/")) {
+            for (String component : queryText.split("/")) {
+                if (!component.isEmpty()) {
+                    terms.add(new Term(PathDocuments.CONTENT_FIELD, component));
+                    // A path component may also be close to a file name
+                    terms.add(new Term(PathDocuments.FILENAME_FIELD, component));
+                }
+            }
+        }
+
+        List<Term> usable = new ArrayList<>();
+        int fuzzyClauses = 0;
+        for (Term term : terms) {
+            if (canMatch(term, editCap)) {
+                usable.add(term);
+                if (edits(term, editCap) > 0) {
+                    fuzzyClauses++;
+                }
+            }
+        }
+
+        // Split the expansion budget evenly; every fuzzy clause needs at least one term
+        int expansionsPerClause = fuzzyClauses > 0 ? Math.max(1, maxExpansions / fuzzyClauses) : 0;
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (Term term : usable) {
+            int edits = edits(term, editCap);
+            Query clause = edits == 0
+                    ? new TermQuery(term)
+                    : new FuzzyQuery(term, edits, prefixLength(edits), expansionsPerClause, true);
+            builder.add(clause, BooleanClause.Occur.SHOULD);
+        }
+        return builder.build();
+    }
+
+    static int maxEdits(int length) {
+        if (length <= EXACT_MAX_LENGTH) {
+            return 0;
+        }
+        return length <= ONE_EDIT_MAX_LENGTH ? 1 : 2;
+    }
+
+    static int prefixLength(int edits) {
+        return edits == 2 ? TWO_EDIT_PREFIX_LENGTH : 0;
+    }
+
+    private static int edits(Term term, int editCap) {
+        return Math.min(maxEdits(term.text().length()), editCap);
+    }
+
+    /**
+     * Whether any term the field can hold is within the term's edit distance.
+     * Edits can change the length by at most one character each.
+     */
+    private boolean canMatch(Term term, int editCap) {
+        int length = term.text().length();
+        int edits = edits(term, editCap);
+        return length - edits <= PathDocuments.maxTermLength(analysis)
+                && length + edits >= PathDocuments.minTermLength(analysis);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.lucene.service;
+
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
+import org.apache.lucene.index.SnapshotDeletionPolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * One partition of the index: its own directory, IndexWriter and near-real-time searcher.
+ * Shards share nothing, so they flush, merge and commit independently of each other.
+ */
+final class IndexShard implements Closeable {
+
+    private final int id;
+    private final String location;
+    private final Directory directory;
+    // Keeps only the last commit, except for commits held by a running snapshot export
+    private final SnapshotDeletionPolicy deletionPolicy =
+            new SnapshotDeletionPolicy(new KeepOnlyLastCommitDeletionPolicy());
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+
+    /**
+     * @param id        Position of the shard, as returned by the {@link ShardRouter}
+     * @param location  Where the shard lives, for log messages
+     * @param directory Directory holding the shard's index
+     */
+    IndexShard(int id, String location, Directory directory) {
+        this.id = id;
+        this.location = location;
+        this.directory = directory;
+    }
+
+    int id() {
+        return id;
+    }
+
+    String location() {
+        return location;
+    }
+
+    Directory directory() {
+        return directory;
+    }
+
+    IndexWriter writer() {
+        return writer;
+    }
+
+    void openWriter(IndexWriterConfig config) throws IOException {
+        config.setIndexDeletionPolicy(deletionPolicy);
+        writer = new IndexWriter(directory, config);
+    }
+
+    /**
+     * Start serving near-real-time searchers from the shard's writer.
+     *
+     * @param searcherFactory Factory for new searchers, or null for plain IndexSearchers
+     * @param listener        Notified after every refresh of this shard
+     */
+    void startSearching(SearcherFactory searcherFactory, ReferenceManager.RefreshListener listener) throws IOException {
+        searcherManager = new SearcherManager(writer, searcherFactory);
+        searcherManager.addListener(listener);
+    }
+
+    IndexSearcher acquire() throws IOException {
+        return searcherManager.acquire();
+    }
+
+    void release(IndexSearcher searcher) throws IOException {
+        searcherManager.release(searcher);
+    }
+
+    void refresh() throws IOException {
+        searcherManager.maybeRefresh();
+    }
+
+    void commitIfChanged() throws IOException {
+        if (writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    /**
+     * Commit pending changes and pin the resulting commit, so that its files stay in the directory
+     * until {@link #releaseSnapshot} even if the writer commits and merges meanwhile.
+     */
+    IndexCommit snapshot() throws IOException {
+        commitIfChanged();
+        return deletionPolicy.snapshot();
+    }
+
+    void releaseSnapshot(IndexCommit commit) throws IOException {
+        deletionPolicy.release(commit);
+        // Files of the released commit are only deleted at the next commit otherwise
+        writer.deleteUnusedFiles();
+    }
+
+    /**
+     * Close the searcher, commit pending changes and close the directory.
+     */
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(searcherManager, writer, directory);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.lucene.service;
+
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the last commit of every shard into a zip archive and reads such an archive back into
+ * empty shard directories.
+ *
+ * Each shard's files are stored under {@code shard-<id>/}, with the {@code segments_N} file of the
+ * commit last, so a truncated archive never yields a commit that references missing files. The
+ * commit user data (schema version, analysis, roots, shards) travels with the commit and is
+ * validated like that of any on-disk index when the importing instance opens it.
+ */
+final class IndexSnapshots {
+
+    private static final String SHARD_PREFIX = "shard-";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Characters of Lucene's own file names; keeps names like ".." and "a\\b" out of the directory
+    private static final Pattern FILE_NAME_CHARS = Pattern.compile("[A-Za-z0-9_.-]+");
+
+    private static final Pattern SEGMENTS_FILE = Pattern.compile(IndexFileNames.SEGMENTS + "_[0-9a-z]+");
+
+    private IndexSnapshots() {
+    }
+
+    /**
+     * Write the current commit of every shard to the stream. Every shard is committed and pinned
+     * before any is written, so the archive holds the shards as of one moment rather than as of
+     * when each was reached; the commits stay pinned until the archive is written, so indexing,
+     * merging and committing carry on meanwhile.
+     *
+     * @return Number of index files written
+     */
+    static int export(List<IndexShard> shards, OutputStream out) throws IOException {
+        Map<IndexShard, IndexCommit> commits = new LinkedHashMap<>();
+        try {
+            for (IndexShard shard : shards) {
+                commits.put(shard, shard.snapshot());
+            }
+
+            int files = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            ZipOutputStream zip = new ZipOutputStream(out);
+            // Index files are already compact; the fastest level still shrinks postings and doc values
+            zip.setLevel(Deflater.BEST_SPEED);
+            for (Map.Entry<IndexShard, IndexCommit> entry : commits.entrySet()) {
+                IndexShard shard = entry.getKey();
+                IndexCommit commit = entry.getValue();
+                List<String> fileNames = new ArrayList<>(commit.getFileNames());
+                // The segments file makes the commit visible, so it goes last
+                fileNames.remove(commit.getSegmentsFileName());
+                fileNames.add(commit.getSegmentsFileName());
+                for (String fileName : fileNames) {
+                    zip.putNextEntry(new ZipEntry(SHARD_PREFIX + shard.id() + "/" + fileName));
+                    copy(shard.directory(), fileName, zip, buffer);
+                    zip.closeEntry();
+                    files++;
+                }
+            }
+            // Finish the archive but leave closing the stream to its owner
+            zip.finish();
+            return files;
+        } finally {
+            IOUtils.applyToAll(commits.entrySet(), entry -> entry.getKey().releaseSnapshot(entry.getValue()));
+        }
+    }
+
+    /**
+     * Read an archive written by {@link #export} into the shards' directories, which must be empty.
+     *
+     * @return Number of index files read
+     * @throws IOException if the archive cannot be read, or holds files for shards that do not exist
+     *                     or files that are not index files
+     */
+    static int importInto(List<IndexShard> shards, InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        List<Set<String>> written = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            written.add(new HashSet<>());
+        }
+
+        ZipInputStream zip = new ZipInputStream(in);
+        for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            String name = entry.getName();
+            int slash = name.indexOf('/');
+            if (!name.startsWith(SHARD_PREFIX) || slash < 0 || name.indexOf('/', slash + 1) >= 0) {
+                throw new IOException("Unexpected entry in index snapshot: " + name);
+            }
+            int shard;
+            try {
+                shard = Integer.parseInt(name.substring(SHARD_PREFIX.length(), slash));
+            } catch (NumberFormatException e) {
+                throw new IOException("Unexpected entry in index snapshot: " + name, e);
+            }
+            if (shard < 0 || shard >= shards.size()) {
+                throw new IOException("Index snapshot has shard " + shard + ", but only " + shards.size()
+                        + " shards are configured");
+            }
+            String fileName = name.substring(slash + 1);
+            if (!isIndexFile(fileName)) {
+                throw new IOException("Unexpected file in index snapshot: " + name);
+            }
+            Directory directory = shards.get(shard).directory();
+            try (IndexOutput output = directory.createOutput(fileName, IOContext.DEFAULT)) {
+                // The zip stream reports the end of the current entry as end of input
+                for (int read = zip.read(buffer); read >= 0; read = zip.read(buffer)) {
+                    output.writeBytes(buffer, 0, read);
+                }
+            }
+            written.get(shard).add(fileName);
+        }
+
+        int files = 0;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            Directory directory = shards.get(shard).directory();
+            directory.sync(written.get(shard));
+            directory.syncMetaData();
+            files += written.get(shard).size();
+        }
+        return files;
+    }
+
+    /**
+     * Whether the name is one a commit can reference: a segments file or a per-segment codec file.
+     */
+    private static boolean isIndexFile(String fileName) {
+        return FILE_NAME_CHARS.matcher(fileName).matches()
+                && (SEGMENTS_FILE.matcher(fileName).matches()
+                    || IndexFileNames.CODEC_FILE_PATTERN.matcher(fileName).matches());
+    }
+
+    private static void copy(Directory directory, String fileName, OutputStream out, byte[] buffer)
+            throws IOException {
+        try (IndexInput input = directory.openInput(fileName, IOContext.READONCE)) {
+            long remaining = input.length();
+            while (remaining > 0) {
+                int chunk = (int) Math.min(buffer.length, remaining);
+                input.readBytes(buffer, 0, chunk);
+                out.write(buffer, 0, chunk);
+                remaining -= chunk;
+            }
+        }
+    }
+}
@@ -1,110 +1,699 @@
 package com.example.lucene.service;
 
-import com.example.lucene.analyzer.CustomNGramAnalyzer;
+import com.example.lucene.config.LuceneIndexProperties;
+import com.example.lucene.ingest.IndexingPipeline;
+import com.example.lucene.ingest.NativePathWatcher;
+import com.example.lucene.ingest.ParallelPathCrawler;
+import com.example.lucene.ingest.PathChangeListener;
+import com.example.lucene.ingest.PathWatcher;
+import com.example.lucene.ingest.PollingPathWatcher;
+import com.example.lucene.matcher.PathSubsequenceMatcher;
+import com.example.lucene.suggest.PathSuggester;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.core.LowerCaseFilter;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
-import org.apache.lucene.document.Document;
-import org.apache.lucene.document.Field;
-import org.apache.lucene.document.StringField;
-import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.ExitableDirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
-import org.apache.lucene.search.FuzzyQuery;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.store.ByteBuffersDirectory;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 @Service
 public class LuceneService {
     private static final Logger logger = LoggerFactory.getLogger(LuceneService.class);
     
-    private static final String PATH_FIELD = "path";
-    private static final String CONTENT_FIELD = "content";
-    private static final String FILENAME_FIELD = "filename";
+    private static final String PATH_FIELD = PathDocuments.PATH_FIELD;
     
+    // Stored in the commit user data; bump whenever the document layout changes so that
+    // an on-disk index written by an older build is rebuilt instead of reused
+    private static final String SCHEMA_VERSION_KEY = "schema.version";
+    private static final String SCHEMA_VERSION = "5";
+    
+    // Also in the commit user data, so that pointing the service at other roots forces a rebuild
+    private static final String ROOTS_KEY = "roots";
+    private static final String ANALYSIS_KEY = "analysis";
+    private static final String SHARDS_KEY = "shards";
+    private static final String INDEX_SORT_KEY = "index.sort";
+    
+    // Number of paths returned when a search does not ask for a limit
+    public static final int DEFAULT_LIMIT = 10;
+    
+    // A snapshot peer that does not connect, or stalls between reads, fails the import instead of hanging startup
+    private static final Duration SNAPSHOT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration SNAPSHOT_READ_TIMEOUT = Duration.ofSeconds(60);
+    
+    // Sample corpus indexed when no crawl roots are configured
     private final List<String> filePaths = Arrays.asList(
             "lucene/queryparser/docs/xml/img/plus.gif",
             "lucene/queryparser/docs/xml/img/join.gif",
             "lucene/queryparser/docs/xml/img/minusbottom.gif"
     );
     
-    private Directory directory;
-    private Analyzer ngramAnalyzer;
+    private final LuceneIndexProperties properties;
+    private final FuzzyQueryPlanner fuzzyQueryPlanner;
+    private final SearchMetrics metrics;
+    private final ShardRouter shardRouter;
+    private final SearchAdmission admission;
+    private Analyzer indexAnalyzer;
+    private Analyzer queryAnalyzer;
     private Analyzer standardAnalyzer;
-    private IndexWriter indexWriter;
+    // Indexed by shard id; a single shard unless lucene.index.shards.count is raised
+    private List<IndexShard> shards = List.of();
+    private SlicedSearcherFactory searcherFactory;
+    private ScheduledExecutorService maintenance;
+    private ExecutorService searchExecutor;
+    private ShardExecutor shardExecutor;
+    private PathWatcher pathWatcher;
+    private PathSubsequenceMatcher subsequenceMatcher;
+    private volatile PathSuggester suggester = PathSuggester.empty();
+    // Component counts of the indexed paths, kept in step with every update alongside the subsequence matcher
+    private final PathSuggester.Builder suggestCounts = new PathSuggester.Builder();
+    // Changes to the counts the suggester was built from; only touched by init and the maintenance thread
+    private long suggesterChanges = -1;
+    private SearchResultCache resultCache;
     
     public LuceneService() {
-        // Initialize in-memory directory using ByteBuffersDirectory (non-deprecated)
-        this.directory = new ByteBuffersDirectory();
+        this(new LuceneIndexProperties());
+    }
+    
+    public LuceneService(LuceneIndexProperties properties) {
+        this(properties, new SimpleMeterRegistry());
+    }
+    
+    @Autowired
+    public LuceneService(LuceneIndexProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
         
-        // Create analyzer with nGram (min=2, max=10) and lowercase filter
-        this.ngramAnalyzer = new CustomNGramAnalyzer(2, 10);
+        // nGram (min=2, max=10) or path component analysis, see LuceneIndexProperties.Analysis
+        this.indexAnalyzer = PathDocuments.indexAnalyzer(properties.getAnalysis());
+        this.queryAnalyzer = PathDocuments.queryAnalyzer(properties.getAnalysis());
         
         // Standard analyzer for fuzzy search
         this.standardAnalyzer = new StandardAnalyzer();
+        
+        this.fuzzyQueryPlanner = new FuzzyQueryPlanner(properties.getAnalysis(), properties.getFuzzyMaxExpansions());
+        this.metrics = new SearchMetrics(meterRegistry);
+        this.shardRouter = new ShardRouter(properties.getShards().getCount(), properties.getShards().getRouting(),
+                properties.getRoots().stream().map(ParallelPathCrawler::rootPrefix).toList());
+        this.admission = new SearchAdmission(properties.getAdmission().getMaxConcurrent(),
+                properties.getAdmission().getMaxQueued());
     }
     
     @PostConstruct
     public void init() throws IOException {
-        createIndex();
+        shards = openShards();
+        
+        // An on-disk index from a previous run is reused as long as the last commit of every shard is readable
+        boolean reused = false;
+        if (properties.getStorage() == LuceneIndexProperties.Storage.MMAP) {
+            reused = openExistingIndex();
+        }
+        // Otherwise another instance's snapshot saves the crawl
+        String snapshot = properties.getImportSnapshot();
+        if (!reused && snapshot != null && !snapshot.isBlank()) {
+            reused = importSnapshot(snapshot);
+        }
+        if (!reused) {
+            // IndexWriter refuses to open over an unreadable commit, even in CREATE mode
+            clearDirectories();
+        }
+        if (reused) {
+            for (IndexShard shard : shards) {
+                shard.openWriter(writerConfig(IndexWriterConfig.OpenMode.APPEND));
+            }
+        } else {
+            createIndex();
+        }
+        
+        // One long-lived near-real-time searcher per shard shared by all requests; segment readers
+        // stay open and warm, and reopening only loads segments written since the last refresh
+        if (properties.getSliceThreads() > 0) {
+            // Each query searches its segment slices in parallel on a bounded pool
+            searcherFactory = new SlicedSearcherFactory(properties.getSliceThreads(),
+                    properties.getSliceMaxDocs(), properties.getSliceMaxSegments());
+        }
+        // Queries fan out to all shards in parallel; a single shard is searched on the calling thread
+        shardExecutor = new ShardExecutor(shards.size() > 1 ? shards.size() : 0);
+        
+        // Cached results are tied to the readers they came from; drop them as soon as a refresh exposes changes
+        resultCache = new SearchResultCache(properties.getResultCacheSize());
+        ReferenceManager.RefreshListener refreshListener = new ReferenceManager.RefreshListener() {
+            @Override
+            public void beforeRefresh() {
+            }
+            
+            @Override
+            public void afterRefresh(boolean didRefresh) throws IOException {
+                if (didRefresh) {
+                    resultCache.invalidate();
+                    updateDocumentCount();
+                }
+            }
+        };
+        for (IndexShard shard : shards) {
+            shard.startSearching(searcherFactory, refreshListener);
+        }
+        updateDocumentCount();
+        
+        // The subsequence matcher and the suggester's component counts mirror the index in memory
+        // and are kept in step with every update
+        subsequenceMatcher = new PathSubsequenceMatcher(properties.getSubsequenceMaxCandidates());
+        loadSubsequenceMatcher();
+        
+        // The suggester is immutable; it is rebuilt from the counts when they have changed
+        rebuildSuggester();
+        
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lucene-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Runs the queries of a batch search in parallel; the queue holds one full batch, and
+        // batches arriving while it is full are rejected rather than piling up behind it
+        AtomicInteger searchThreads = new AtomicInteger();
+        searchExecutor = new ThreadPoolExecutor(properties.getSearchThreads(), properties.getSearchThreads(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getMaxBatchSize()), runnable -> {
+            Thread thread = new Thread(runnable, "lucene-search-" + searchThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        schedule(this::refreshSearcher, properties.getRefreshInterval());
+        schedule(this::commitChanges, properties.getCommitInterval());
+        schedule(this::rebuildSuggester, properties.getSuggestRebuildInterval());
+        
+        if (!properties.getRoots().isEmpty()) {
+            pathWatcher = startWatcher();
+            // A reused index misses whatever changed while it was not watched, and a watched fresh
+            // one whatever changed during its crawl; the watcher runs first, so nothing changing
+            // during the catch-up is missed either
+            if (reused || pathWatcher != null) {
+                maintenance.execute(logFailures(this::catchUp));
+            }
+        }
     }
     
-    private void createIndex() throws IOException {
-        IndexWriterConfig config = new IndexWriterConfig(ngramAnalyzer);
-        indexWriter = new IndexWriter(directory, config);
+    /**
+     * Make the searcher see all changes made so far, whether committed or not.
+     * Requests still holding the previous searcher keep using it until they release it.
+     */
+    public void refreshSearcher() throws IOException {
+        for (IndexShard shard : shards) {
+            shard.refresh();
+        }
+    }
+    
+    /**
+     * Add a file path, or re-index it if it is already present.
+     * The change becomes searchable at the next searcher refresh.
+     */
+    public void addOrUpdatePath(String filePath) throws IOException {
+        IndexWriter writer = shards.get(shardRouter.shardOf(filePath)).writer();
+        writer.updateDocument(new Term(PATH_FIELD, filePath), PathDocuments.create(filePath));
+        track(filePath);
+    }
+    
+    /**
+     * Remove a file path, or every path below it if it names a directory.
+     * The change becomes searchable at the next searcher refresh.
+     */
+    public void deletePath(String filePath) throws IOException {
+        // A directory's paths may be spread over several shards
+        for (IndexShard shard : shardsBelow(filePath)) {
+            shard.writer().deleteDocuments(
+                    new TermQuery(new Term(PATH_FIELD, filePath)),
+                    new PrefixQuery(new Term(PATH_FIELD, filePath + "/")));
+        }
+        for (String removed : subsequenceMatcher.remove(filePath)) {
+            suggestCounts.remove(removed);
+        }
+    }
+    
+    /**
+     * Add a path to the in-memory mirrors of the index; re-indexing a path leaves them unchanged.
+     */
+    private void track(String filePath) {
+        if (subsequenceMatcher.add(filePath)) {
+            suggestCounts.add(filePath);
+        }
+    }
+    
+    /**
+     * Shards that may hold the path or paths below it.
+     */
+    private List<IndexShard> shardsBelow(String directory) {
+        int shard = shardRouter.shardOfDirectory(directory);
+        return shard == ShardRouter.ALL_SHARDS ? shards : List.of(shards.get(shard));
+    }
+    
+    @PreDestroy
+    public void close() throws IOException {
+        if (pathWatcher != null) {
+            pathWatcher.close();
+        }
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+        if (searchExecutor != null) {
+            searchExecutor.shutdownNow();
+        }
+        try {
+            // Closing a shard commits its pending changes
+            IOUtils.close(shards);
+        } finally {
+            if (searcherFactory != null) {
+                searcherFactory.shutdown();
+            }
+            if (shardExecutor != null) {
+                shardExecutor.shutdown();
+            }
+        }
+    }
+    
+    private void updateDocumentCount() throws IOException {
+        try (ShardSearchers searchers = acquireSearchers(ShardRouter.ALL_SHARDS)) {
+            metrics.setDocumentCount(searchers.numDocs());
+        }
+    }
+    
+    /**
+     * Borrow the shared searchers; they must be released by closing the result even if the search fails.
+     * 
+     * @param shard Shard to search, or {@link ShardRouter#ALL_SHARDS}
+     */
+    private ShardSearchers acquireSearchers(int shard) throws IOException {
+        return ShardSearchers.acquire(shards, shard);
+    }
+    
+    private void schedule(IndexTask task, Duration interval) {
+        maintenance.scheduleWithFixedDelay(logFailures(task), interval.toMillis(), interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+    
+    private static Runnable logFailures(IndexTask task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (IOException | RuntimeException e) {
+                logger.error("Index maintenance failed: {}", e.toString());
+            }
+        };
+    }
+    
+    /**
+     * Write the last commit of every shard, after committing pending changes, as a zip archive that
+     * another instance can start from ({@code lucene.index.import-snapshot}). All shards are
+     * committed before any is written. Indexing continues while the archive is written; the
+     * exported commits are kept until it is complete.
+     * 
+     * @param out Stream to write to; it is not closed
+     */
+    public void exportSnapshot(OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        int files = IndexSnapshots.export(shards, out);
+        logger.info("Exported index snapshot of {} files in {} ms", files,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+    
+    /**
+     * Fill the empty shard directories from a snapshot archive and validate it like an existing index.
+     * 
+     * @return true if the snapshot was imported and can be served
+     */
+    private boolean importSnapshot(String location) throws IOException {
+        clearDirectories();
+        long start = System.nanoTime();
+        boolean remote = location.startsWith("http://") || location.startsWith("https://");
+        try (InputStream in = remote ? openRemote(location) : Files.newInputStream(Path.of(location))) {
+            int files = IndexSnapshots.importInto(shards, in);
+            logger.info("Imported index snapshot of {} files from {} in {} ms", files, location,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            logger.warn("Index snapshot at {} is unusable, rebuilding: {}", location, e.toString());
+            return false;
+        }
+        return openExistingIndex();
+    }
+    
+    private static InputStream openRemote(String location) throws IOException {
+        URLConnection connection = new URL(location).openConnection();
+        connection.setConnectTimeout((int) SNAPSHOT_CONNECT_TIMEOUT.toMillis());
+        connection.setReadTimeout((int) SNAPSHOT_READ_TIMEOUT.toMillis());
+        return connection.getInputStream();
+    }
+    
+    /**
+     * Bring a reused index up to date with the roots: crawl them, add the paths the index lacks
+     * and delete the ones that no longer exist. Only paths are compared, so this is far cheaper
+     * than re-indexing everything.
+     */
+    private void catchUp() throws IOException {
+        long start = System.nanoTime();
+        Set<String> stale = ConcurrentHashMap.newKeySet();
+        try (ShardSearchers searchers = acquireSearchers(ShardRouter.ALL_SHARDS)) {
+            for (IndexSearcher indexSearcher : searchers.searchers()) {
+                PathDocuments.forEachPath(indexSearcher.getIndexReader(), stale::add);
+            }
+        }
         
-        // Clear any existing documents
-        indexWriter.deleteAll();
+        // Crawler threads only sort paths; documents are written once the crawl is complete
+        Queue<String> missing = new ConcurrentLinkedQueue<>();
+        LuceneIndexProperties.Ingest ingest = properties.getIngest();
+        ParallelPathCrawler crawler = new ParallelPathCrawler(ingest.getCrawlThreads(), ingest.getBatchSize());
+        try {
+            crawler.crawl(properties.getRoots(), batch -> {
+                for (String path : batch) {
+                    if (!stale.remove(path)) {
+                        missing.add(path);
+                    }
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while catching up with the roots");
+        }
         
-        // Add documents for each file path
-        for (String filePath : filePaths) {
-            Document document = new Document();
-            
-            // Store the path as a string field (stored but not tokenized)
-            document.add(new StringField(PATH_FIELD, filePath, Field.Store.YES));
+        for (String path : missing) {
+            addOrUpdatePath(path);
+        }
+        for (String path : stale) {
+            deletePath(path);
+        }
+        refreshSearcher();
+        logger.info("Caught up with the roots: {} paths added, {} removed in {} ms", missing.size(), stale.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+    
+    private void loadSubsequenceMatcher() throws IOException {
+        try (ShardSearchers searchers = acquireSearchers(ShardRouter.ALL_SHARDS)) {
+            for (IndexSearcher indexSearcher : searchers.searchers()) {
+                PathDocuments.forEachPath(indexSearcher.getIndexReader(), this::track);
+            }
+        }
+        logger.info("Loaded {} paths into the subsequence matcher", subsequenceMatcher.size());
+    }
+    
+    /**
+     * Rebuild the suggester from the component counts, unless it already reflects them. The counts
+     * are kept up to date by every add and delete, so a rebuild sorts the distinct components
+     * without reading any paths from the index. Lookups keep using the previous suggester until the
+     * new one is complete.
+     */
+    private void rebuildSuggester() throws IOException {
+        long changes = suggestCounts.changes();
+        if (changes == suggesterChanges) {
+            return;
+        }
+        long start = System.nanoTime();
+        suggester = suggestCounts.build();
+        suggesterChanges = changes;
+        logger.info("Built suggester over {} path components ({} KB) in {} ms", suggester.size(),
+                suggester.ramBytesUsed() / 1024, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+    
+    private void commitChanges() throws IOException {
+        for (IndexShard shard : shards) {
+            shard.commitIfChanged();
+        }
+    }
+    
+    private PathWatcher startWatcher() throws IOException {
+        PathChangeListener listener = new PathChangeListener() {
+            @Override
+            public void pathCreated(String path) throws IOException {
+                addOrUpdatePath(path);
+            }
             
-            // Add the path also as a text field for searching (tokenized)
-            document.add(new TextField(CONTENT_FIELD, filePath, Field.Store.NO));
+            @Override
+            public void pathDeleted(String path) throws IOException {
+                deletePath(path);
+            }
+        };
+        
+        LuceneIndexProperties.Watch watch = properties.getWatch();
+        List<Path> roots = properties.getRoots();
+        switch (watch.getMode()) {
+            case NATIVE: {
+                PathWatcher watcher = new NativePathWatcher(roots, listener);
+                watcher.start();
+                return watcher;
+            }
+            case AUTO: {
+                PathWatcher watcher = new NativePathWatcher(roots, listener);
+                try {
+                    watcher.start();
+                    return watcher;
+                } catch (IOException e) {
+                    logger.warn("Native file watching unavailable ({}), falling back to polling", e.toString());
+                }
+                // fall through
+            }
+            case POLLING: {
+                PathWatcher watcher = new PollingPathWatcher(roots, listener, watch.getPollInterval());
+                watcher.start();
+                return watcher;
+            }
+            case OFF:
+            default:
+                return null;
+        }
+    }
+    
+    private IndexWriterConfig writerConfig(IndexWriterConfig.OpenMode openMode) {
+        IndexWriterConfig config = new IndexWriterConfig(indexAnalyzer);
+        config.setOpenMode(openMode);
+        config.setRAMBufferSizeMB(properties.getIngest().getRamBufferMb());
+        if (properties.getIndexSort() == LuceneIndexProperties.IndexSort.DEPTH) {
+            // Sorted when segments are flushed and merged, so searches in this order can stop early
+            config.setIndexSort(PathDocuments.DEPTH_ORDER);
+        }
+        return config;
+    }
+    
+    private List<IndexShard> openShards() throws IOException {
+        List<IndexShard> opened = new ArrayList<>(shardRouter.shardCount());
+        try {
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                opened.add(openShard(shard));
+            }
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeWhileHandlingException(opened);
+            throw e;
+        }
+        return opened;
+    }
+    
+    private IndexShard openShard(int shard) throws IOException {
+        switch (properties.getStorage()) {
+            case MMAP: {
+                // A single shard keeps the index path itself, so existing indexes stay usable
+                Path path = shardRouter.shardCount() == 1
+                        ? properties.getPath()
+                        : properties.getPath().resolve("shard-" + shard);
+                logger.info("Using memory-mapped index at {}", path.toAbsolutePath());
+                return new IndexShard(shard, path.toString(), new MMapDirectory(path));
+            }
+            case MEMORY:
+            default:
+                // Initialize in-memory directory using ByteBuffersDirectory (non-deprecated)
+                return new IndexShard(shard, "memory shard " + shard, new ByteBuffersDirectory());
+        }
+    }
+    
+    /**
+     * Validate the last commit of every shard so the index can be served without a rebuild.
+     * A rebuild crawls all shards, so one unusable shard makes the whole index unusable.
+     * 
+     * @return true if every shard is present, matches the current schema and can be opened
+     */
+    private boolean openExistingIndex() {
+        for (IndexShard shard : shards) {
+            if (!openExistingShard(shard)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean openExistingShard(IndexShard shard) {
+        Directory directory = shard.directory();
+        try {
+            if (!DirectoryReader.indexExists(directory)) {
+                logger.info("No index found at {}, building a new one", shard.location());
+                return false;
+            }
             
-            // Extract and store filename separately for fuzzy search
-            String filename = extractFilename(filePath);
-            document.add(new TextField(FILENAME_FIELD, filename, Field.Store.NO));
+            // Reading the latest commit verifies the checksum of the segments file
+            SegmentInfos commit = SegmentInfos.readLatestCommit(directory);
+            String schemaVersion = commit.getUserData().get(SCHEMA_VERSION_KEY);
+            if (!SCHEMA_VERSION.equals(schemaVersion)) {
+                logger.info("Index schema version {} does not match {}, rebuilding", schemaVersion, SCHEMA_VERSION);
+                return false;
+            }
+            String analysis = commit.getUserData().get(ANALYSIS_KEY);
+            if (!properties.getAnalysis().name().equals(analysis)) {
+                logger.info("Index was built with {} analysis, not {}, rebuilding", analysis, properties.getAnalysis());
+                return false;
+            }
+            String roots = commit.getUserData().get(ROOTS_KEY);
+            if (!describeRoots().equals(roots)) {
+                logger.info("Index was built from roots [{}], not [{}], rebuilding", roots, describeRoots());
+                return false;
+            }
+            String sharding = commit.getUserData().get(SHARDS_KEY);
+            if (!describeShards().equals(sharding)) {
+                logger.info("Index was built with shards [{}], not [{}], rebuilding", sharding, describeShards());
+                return false;
+            }
+            // Segments sorted one way cannot be merged with segments sorted another
+            String indexSort = commit.getUserData().get(INDEX_SORT_KEY);
+            if (!properties.getIndexSort().name().equals(indexSort)) {
+                logger.info("Index was sorted by {}, not {}, rebuilding", indexSort, properties.getIndexSort());
+                return false;
+            }
             
-            indexWriter.addDocument(document);
+            // Opening a reader checks every segment's header and footer
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                if (properties.isVerifyChecksumsOnOpen()) {
+                    for (LeafReaderContext leaf : reader.leaves()) {
+                        leaf.reader().checkIntegrity();
+                    }
+                }
+                logger.info("Opened existing index (generation {}) with {} file paths",
+                        commit.getGeneration(), reader.numDocs());
+            }
+            return true;
+        } catch (IOException e) {
+            // Covers CorruptIndexException and IndexFormatTooOld/TooNewException
+            logger.warn("Existing index at {} is unusable, rebuilding: {}", shard.location(), e.toString());
+            return false;
+        }
+    }
+    
+    private void clearDirectories() throws IOException {
+        for (IndexShard shard : shards) {
+            Directory directory = shard.directory();
+            for (String file : directory.listAll()) {
+                directory.deleteFile(file);
+            }
+        }
+    }
+    
+    private void createIndex() throws IOException {
+        // Replace whatever is in the directories, including a corrupt or outdated index
+        List<IndexWriter> writers = new ArrayList<>(shards.size());
+        for (IndexShard shard : shards) {
+            shard.openWriter(writerConfig(IndexWriterConfig.OpenMode.CREATE));
+            writers.add(shard.writer());
         }
         
-        indexWriter.commit();
-        indexWriter.close();
+        if (properties.getRoots().isEmpty()) {
+            // Add documents for each sample file path
+            for (String filePath : filePaths) {
+                writers.get(shardRouter.shardOf(filePath)).addDocument(PathDocuments.create(filePath));
+            }
+            logger.info("Indexed {} file paths", filePaths.size());
+        } else {
+            LuceneIndexProperties.Ingest ingest = properties.getIngest();
+            IndexingPipeline pipeline = new IndexingPipeline(writers, shardRouter::shardOf, ingest.getCrawlThreads(),
+                    ingest.getIndexingThreads(), ingest.getBatchSize(), ingest.getQueueCapacity());
+            try {
+                pipeline.run(properties.getRoots());
+            } catch (IOException e) {
+                for (IndexWriter writer : writers) {
+                    writer.rollback();
+                }
+                throw e;
+            }
+        }
         
-        logger.info("Indexed {} file paths", filePaths.size());
+        for (IndexWriter writer : writers) {
+            writer.setLiveCommitData(Map.of(
+                    SCHEMA_VERSION_KEY, SCHEMA_VERSION,
+                    ANALYSIS_KEY, properties.getAnalysis().name(),
+                    ROOTS_KEY, describeRoots(),
+                    SHARDS_KEY, describeShards(),
+                    INDEX_SORT_KEY, properties.getIndexSort().name()).entrySet());
+            // The writer stays open for incremental updates
+            writer.commit();
+        }
     }
     
-    private String extractFilename(String path) {
-        int lastSlash = path.lastIndexOf('/');
-        if (lastSlash >= 0 && lastSlash < path.length() - 1) {
-            return path.substring(lastSlash + 1);
-        }
-        return path;
+    private String describeShards() {
+        LuceneIndexProperties.Shards.Routing routing = properties.getShards().getRouting();
+        // Top-level routing used to key on the root's own name; such indexes are rebuilt
+        return shardRouter.shardCount() + " " + routing
+                + (routing == LuceneIndexProperties.Shards.Routing.TOP_LEVEL ? " below roots" : "");
+    }
+    
+    private String describeRoots() {
+        return properties.getRoots().stream()
+                .map(root -> root.toAbsolutePath().normalize().toString())
+                .collect(Collectors.joining(File.pathSeparator));
     }
     
     /**
@@ -115,102 +704,601 @@ public class LuceneService {
      * @return List of matching file paths
      */
     public List<String> search(String queryText, boolean fuzzy) throws IOException, ParseException {
-        if (queryText == null || queryText.trim().isEmpty()) {
-            return new ArrayList<>();
+        return search(queryText, fuzzy ? SearchMode.FUZZY : SearchMode.NGRAM);
+    }
+    
+    /**
+     * Search for file paths matching the query.
+     * 
+     * @param queryText The search query text
+     * @param mode How the query is matched against paths
+     * @return List of matching file paths
+     */
+    public List<String> search(String queryText, SearchMode mode) throws IOException, ParseException {
+        return search(queryText, mode, DEFAULT_LIMIT);
+    }
+    
+    /**
+     * Search for file paths matching the query.
+     * 
+     * @param queryText The search query text
+     * @param mode How the query is matched against paths
+     * @param limit Maximum number of paths to return, at most {@code lucene.index.max-limit}
+     * @return List of matching file paths
+     * @throws IllegalArgumentException if the limit is out of range
+     */
+    public List<String> search(String queryText, SearchMode mode, int limit) throws IOException, ParseException {
+        return new ArrayList<>(searchPage(queryText, mode, limit, null).getResults());
+    }
+    
+    /**
+     * Search for one page of file paths matching the query.
+     * 
+     * @param queryText The search query text
+     * @param mode How the query is matched against paths
+     * @param limit Maximum number of paths to return, at most {@code lucene.index.max-limit}
+     * @param cursor Cursor returned with the previous page, or null for the first page
+     * @return The page of matching file paths and the cursor for the next one
+     * @throws IllegalArgumentException if the limit is out of range or the cursor is invalid
+     */
+    public SearchPage searchPage(String queryText, SearchMode mode, int limit, String cursor)
+            throws IOException, ParseException {
+        return searchPage(queryText, mode, limit, cursor, null);
+    }
+    
+    /**
+     * Search for one page of file paths matching the query below a directory.
+     * 
+     * @param queryText The search query text
+     * @param mode How the query is matched against paths
+     * @param limit Maximum number of paths to return, at most {@code lucene.index.max-limit}
+     * @param cursor Cursor returned with the previous page, or null for the first page
+     * @param scope Directory to restrict the search to, or null for the whole index
+     * @return The page of matching file paths and the cursor for the next one
+     * @throws IllegalArgumentException if the limit is out of range, the cursor is invalid,
+     *                                  or a subsequence search is scoped
+     */
+    public SearchPage searchPage(String queryText, SearchMode mode, int limit, String cursor, String scope)
+            throws IOException, ParseException {
+        return searchPage(queryText, mode, limit, cursor, scope, SearchOrder.RELEVANCE);
+    }
+    
+    /**
+     * Search for one page of file paths matching the query below a directory, in the given order.
+     * 
+     * @param queryText The search query text
+     * @param mode How the query is matched against paths
+     * @param limit Maximum number of paths to return, at most {@code lucene.index.max-limit}
+     * @param cursor Cursor returned with the previous page of the same order, or null for the first page
+     * @param scope Directory to restrict the search to, or null for the whole index
+     * @param order Order of the results; {@link SearchOrder#DEPTH} stops collecting early when the
+     *              index is sorted the same way ({@code lucene.index.index-sort=DEPTH})
+     * @return The page of matching file paths and the cursor for the next one; partial if the search
+     *         ran out of time ({@code lucene.index.search-timeout})
+     * @throws IllegalArgumentException if the limit is out of range, the cursor is invalid,
+     *                                  or a subsequence search is scoped or not ordered by relevance
+     * @throws SearchRejectedException if too many searches of the mode are running and waiting
+     */
+    public SearchPage searchPage(String queryText, SearchMode mode, int limit, String cursor, String scope,
+                                 SearchOrder order) throws IOException, ParseException {
+        // The deadline counts from arrival, so time spent waiting for a slot is part of it
+        SearchDeadline deadline = SearchDeadline.after(properties.getSearchTimeout());
+        checkLimit(limit);
+        if (mode == SearchMode.SUBSEQUENCE && order != SearchOrder.RELEVANCE) {
+            throw new IllegalArgumentException("Subsequence search can only be ordered by relevance");
+        }
+        // Subsequence search ranks no more than its candidate cap, so no page starts beyond it
+        SearchCursor after = cursor != null
+                ? SearchCursor.decode(cursor, mode, order, shardRouter.shardCount(),
+                        properties.getSubsequenceMaxCandidates())
+                : null;
+        // An empty directory, like no scope at all, stands for the whole index
+        String directory = scope != null ? scopeDirectory(scope) : "";
+        if (!directory.isEmpty() && mode == SearchMode.SUBSEQUENCE) {
+            throw new IllegalArgumentException("Subsequence search cannot be scoped");
         }
         
-        if (fuzzy) {
-            return fuzzySearch(queryText);
-        } else {
-            return ngramSearch(queryText);
+        // With top-level routing, a scope only needs the one shard holding its directory
+        int shard = directory.isEmpty() ? ShardRouter.ALL_SHARDS : shardRouter.shardOfDirectory(directory);
+        try (ShardSearchers searchers = acquireSearchers(shard)) {
+            return search(searchers, queryText, mode, order, directory, limit, after, deadline);
         }
     }
     
     /**
-     * Original ngram-based search implementation
+     * Complete a typed prefix to file and directory names, most frequent first. Lookups only walk
+     * an in-memory FST, so they are cheap enough for every keystroke; the suggester reflects the
+     * indexed paths as of its last rebuild ({@code lucene.index.suggest-rebuild-interval}).
+     * 
+     * @param prefix Typed prefix of a file or directory name
+     * @param limit Maximum number of suggestions, at most {@code lucene.index.max-limit}
+     * @return Lowercase file and directory names starting with the prefix
+     * @throws IllegalArgumentException if the limit is out of range
      */
-    private List<String> ngramSearch(String queryText) throws IOException, ParseException {
-        // Escape special characters to avoid query syntax errors
-        queryText = QueryParser.escape(queryText);
-        
-        // Create query parser
-        QueryParser queryParser = new QueryParser(CONTENT_FIELD, ngramAnalyzer);
-        Query query = queryParser.parse(queryText);
+    public List<String> suggest(String prefix, int limit) throws IOException {
+        checkLimit(limit);
+        long start = System.nanoTime();
+        List<String> suggestions = suggester.suggest(prefix.trim(), limit);
+        metrics.recordSuggest(start);
+        return suggestions;
+    }
+    
+    /**
+     * Run several searches in parallel against one set of searchers, so they all see the same index state.
+     * The batch has one deadline ({@code lucene.index.search-timeout}) from its arrival, and each of its
+     * searches is admitted like an interactive one; a search that runs out of time contributes the
+     * paths it found.
+     * 
+     * @param requests Searches to run
+     * @return Results of every request, in request order
+     * @throws IllegalArgumentException if there are too many requests, or one has no mode or a limit out of range
+     * @throws SearchRejectedException if too many batch searches are waiting, or one of the searches was
+     *                                 not admitted
+     */
+    public List<List<String>> searchBatch(List<SearchRequest> requests) throws IOException, ParseException {
+        SearchDeadline deadline = SearchDeadline.after(properties.getSearchTimeout());
+        if (requests.size() > properties.getMaxBatchSize()) {
+            throw new IllegalArgumentException("At most " + properties.getMaxBatchSize() + " searches per batch");
+        }
+        for (SearchRequest request : requests) {
+            if (request.getMode() == null) {
+                throw new IllegalArgumentException("Search mode is required");
+            }
+            checkLimit(request.getLimit());
+        }
         
-        // Perform search
-        return executeSearch(query);
+        try (ShardSearchers searchers = acquireSearchers(ShardRouter.ALL_SHARDS)) {
+            List<Future<List<String>>> futures = new ArrayList<>(requests.size());
+            List<List<String>> results = new ArrayList<>(requests.size());
+            try {
+                for (SearchRequest request : requests) {
+                    futures.add(searchExecutor.submit(() -> search(searchers,
+                            request.getQuery(), request.getMode(), SearchOrder.RELEVANCE, "", request.getLimit(), null,
+                            deadline).getResults()));
+                }
+                for (Future<List<String>> future : futures) {
+                    results.add(future.get());
+                }
+            } catch (RejectedExecutionException e) {
+                throw new SearchRejectedException("Too many batch searches waiting");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for batch search results");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof ParseException) {
+                    throw (ParseException) cause;
+                }
+                if (cause instanceof SearchRejectedException) {
+                    throw (SearchRejectedException) cause;
+                }
+                throw new IllegalStateException("Batch search failed", cause);
+            } finally {
+                // The searcher is released below, so even after a failure no search may still be using it
+                for (Future<List<String>> future : futures) {
+                    awaitQuietly(future);
+                }
+            }
+            return results;
+        }
     }
     
     /**
-     * Fuzzy search implementation with maxEdits=2
+     * Prepare a search that streams every matching path instead of a ranked page, for bulk exports.
+     * The query is checked and built right away, so errors surface before any output is written.
+     * 
+     * @param queryText The search query text, or null to match everything in the scope
+     * @param mode How the query is matched against paths; subsequence search only ranks in memory and cannot stream
+     * @param scope Directory to restrict the search to, or null for the whole index
+     * @throws IllegalArgumentException if neither a query nor a scope is given, or the mode cannot stream
      */
-    private List<String> fuzzySearch(String queryText) throws IOException {
-        // Convert to lowercase for case-insensitive search
-        queryText = queryText.toLowerCase();
+    public StreamingSearch streamSearch(String queryText, SearchMode mode, String scope) throws ParseException {
+        boolean hasQuery = queryText != null && !queryText.trim().isEmpty();
+        boolean hasScope = scope != null && !scope.trim().isEmpty();
+        if (!hasQuery && !hasScope) {
+            throw new IllegalArgumentException("A query or a scope is required");
+        }
+        if (mode == SearchMode.SUBSEQUENCE) {
+            throw new IllegalArgumentException("Subsequence search cannot be streamed; page through it instead");
+        }
+        if (mode == SearchMode.AUTO) {
+            throw new IllegalArgumentException("Auto search picks its tier by the top hits and cannot be streamed");
+        }
+        
+        String directory = hasScope ? scopeDirectory(scope) : "";
+        Query query;
+        if (hasQuery) {
+            String normalized = normalize(queryText, mode);
+            query = scoped(mode == SearchMode.FUZZY ? fuzzyQueryPlanner.plan(normalized) : ngramQuery(normalized),
+                    directory);
+        } else {
+            query = PathDocuments.subtreeQuery(directory);
+        }
+        // With top-level routing, a scope only needs the one shard holding its directory
+        int scopeShard = directory.isEmpty() ? ShardRouter.ALL_SHARDS : shardRouter.shardOfDirectory(directory);
         
-        // Create a boolean query to combine multiple fuzzy queries
-        BooleanQuery.Builder queryBuilder = new BooleanQuery.Builder();
+        return consumer -> {
+            // The searchers stay leased for as long as the client keeps reading; shards are
+            // streamed one after the other, as the consumer is not thread-safe
+            try (ShardSearchers searchers = acquireSearchers(scopeShard)) {
+                PathStreamingCollector collector = new PathStreamingCollector(consumer);
+                for (IndexSearcher indexSearcher : searchers.searchers()) {
+                    indexSearcher.search(query, collector);
+                }
+                return collector.count;
+            }
+        };
+    }
+    
+    /**
+     * Directory named by a scope; a trailing '/' is optional, and "/" alone is the whole index.
+     */
+    private static String scopeDirectory(String scope) {
+        String directory = scope.trim();
+        while (directory.endsWith("/")) {
+            directory = directory.substring(0, directory.length() - 1);
+        }
+        return directory;
+    }
+    
+    /**
+     * Restrict a query to the paths below a directory, unless the directory is empty.
+     * The filter does not score, so scoped and unscoped searches rank alike.
+     */
+    private static Query scoped(Query query, String directory) {
+        if (directory.isEmpty()) {
+            return query;
+        }
+        return new BooleanQuery.Builder()
+                .add(query, BooleanClause.Occur.MUST)
+                .add(PathDocuments.subtreeQuery(directory), BooleanClause.Occur.FILTER)
+                .build();
+    }
+    
+    private void checkLimit(int limit) {
+        if (limit < 1 || limit > properties.getMaxLimit()) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + properties.getMaxLimit());
+        }
+    }
+    
+    /**
+     * Wait for a task to finish, ignoring its outcome and any interrupts.
+     */
+    private static void awaitQuietly(Future<?> future) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                future.get();
+                break;
+            } catch (CancellationException | ExecutionException e) {
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * @param deadline When the search must be done, including any wait for admission
+     */
+    private SearchPage search(ShardSearchers searchers, String queryText, SearchMode mode, SearchOrder order,
+                              String scope, int limit, SearchCursor after, SearchDeadline deadline)
+            throws IOException, ParseException {
+        if (queryText == null || queryText.trim().isEmpty()) {
+            return new SearchPage(List.of(), null);
+        }
+        long start = System.nanoTime();
+        queryText = normalize(queryText, mode);
         
-        // Try to match the full path with fuzzy query
-        Term pathTerm = new Term(CONTENT_FIELD, queryText);
-        FuzzyQuery pathFuzzyQuery = new FuzzyQuery(pathTerm, 2); // maxEdits=2
-        queryBuilder.add(pathFuzzyQuery, BooleanClause.Occur.SHOULD);
+        // Only first pages are cached; they are what repeated queries ask for. Subsequence search
+        // reads the in-memory matcher, which changes as soon as a path is added or deleted, so its
+        // results are tied to the matcher's generation rather than to the reader
+        long cacheVersion = mode == SearchMode.SUBSEQUENCE ? subsequenceMatcher.generation() : searchers.version();
+        if (after == null) {
+            SearchPage cached = resultCache.get(queryText, mode, order, scope, limit, cacheVersion);
+            if (cached != null) {
+                metrics.recordSearch(mode, true, start, cached.getResults().size());
+                return cached;
+            }
+        }
         
-        // Try to extract and match the filename part if there's a slash
-        if (queryText.contains("/")) {
-            // Extract and match the filename
-            String filename = extractFilename(queryText);
-            Term filenameTerm = new Term(FILENAME_FIELD, filename);
-            FuzzyQuery filenameFuzzyQuery = new FuzzyQuery(filenameTerm, 2); // maxEdits=2
-            queryBuilder.add(filenameFuzzyQuery, BooleanClause.Occur.SHOULD);
-            
-            // Break path into components and add fuzzy queries for each component
-            String[] pathComponents = queryText.split("/");
-            for (String component : pathComponents) {
-                if (!component.isEmpty()) {
-                    Term componentTerm = new Term(CONTENT_FIELD, component);
-                    FuzzyQuery componentQuery = new FuzzyQuery(componentTerm, 2); // maxEdits=2
-                    queryBuilder.add(componentQuery, BooleanClause.Occur.SHOULD);
-                    
-                    // Also try to match components against filenames 
-                    // (in case a path component is similar to a filename)
-                    Term filenameComponentTerm = new Term(FILENAME_FIELD, component);
-                    FuzzyQuery filenameComponentQuery = new FuzzyQuery(filenameComponentTerm, 2);
-                    queryBuilder.add(filenameComponentQuery, BooleanClause.Occur.SHOULD);
+        SearchPage page;
+        // Cache hits above are cheap enough to skip admission
+        long queued = System.nanoTime();
+        try (SearchAdmission.Permit permit = admit(mode, deadline)) {
+            // Phases are timed from admission, so waiting for a slot does not count as parsing
+            long admitted = metrics.recordPhase(mode, SearchMetrics.Phase.QUEUE, queued);
+            switch (mode) {
+                case FUZZY: {
+                    BooleanQuery query = fuzzyQueryPlanner.plan(queryText);
+                    metrics.recordFuzzyClauses(query.clauses().size());
+                    page = executeSearch(searchers, scoped(query, scope), mode, null, order, limit, after, deadline,
+                            metrics.recordPhase(mode, SearchMetrics.Phase.PARSE, admitted));
+                    break;
+                }
+                case AUTO:
+                    page = autoSearch(searchers, queryText, order, scope, limit, after, deadline, admitted);
+                    break;
+                case SUBSEQUENCE:
+                    // The matcher bounds its own work, so it does not check the deadline
+                    page = subsequenceSearch(queryText, limit, after);
+                    metrics.recordPhase(mode, SearchMetrics.Phase.SEARCH, admitted);
+                    break;
+                case NGRAM:
+                default: {
+                    Query query = scoped(ngramQuery(queryText), scope);
+                    page = executeSearch(searchers, query, mode, null, order, limit, after, deadline,
+                            metrics.recordPhase(mode, SearchMetrics.Phase.PARSE, admitted));
+                    break;
                 }
             }
-        } else {
-            // If it's just a filename without path, search in both fields
-            Term filenameTerm = new Term(FILENAME_FIELD, queryText);
-            FuzzyQuery filenameFuzzyQuery = new FuzzyQuery(filenameTerm, 2); // maxEdits=2
-            queryBuilder.add(filenameFuzzyQuery, BooleanClause.Occur.SHOULD);
         }
+        // A subsequence page is partial when the candidate cap was reached, which a retry would
+        // repeat; other modes ran out of time, and another try with more time, or a less loaded
+        // server, can do better
+        boolean timedOut = page.isPartial() && mode != SearchMode.SUBSEQUENCE;
+        if (timedOut) {
+            metrics.recordTimeout(mode);
+        } else if (after == null) {
+            resultCache.put(queryText, mode, order, scope, limit, cacheVersion, page);
+        }
+        metrics.recordSearch(mode, false, start, page.getResults().size());
+        return page;
+    }
+    
+    /**
+     * Wait for a slot to run a search of the mode.
+     */
+    private SearchAdmission.Permit admit(SearchMode mode, SearchDeadline deadline) throws InterruptedIOException {
+        try {
+            return admission.admit(mode, deadline);
+        } catch (SearchRejectedException e) {
+            metrics.recordRejected(mode, e.isQueueFull());
+            throw e;
+        }
+    }
+    
+    /**
+     * Run the tiers of an auto search from the cheapest until one finds enough paths. Later pages
+     * continue in the tier that answered the first one, so they page through the same ranking.
+     * When no tier finds enough, the last one that ran answers with what it found; a tier that runs
+     * out of time answers with its partial results.
+     * 
+     * @param start When the search was admitted, for the phase timers
+     */
+    private SearchPage autoSearch(ShardSearchers searchers, String queryText, SearchOrder order, String scope,
+                                  int limit, SearchCursor after, SearchDeadline deadline, long start)
+            throws IOException, ParseException {
+        int enough = Math.min(limit, properties.getAutoMinHits());
+        List<SearchTier> tiers = after != null ? List.of(after.tier()) : List.of(SearchTier.values());
+        SearchPage page = new SearchPage(List.of(), null, tiers.get(tiers.size() - 1));
+        Query previous = null;
+        for (SearchTier tier : tiers) {
+            Query query = tierQuery(tier, queryText);
+            // A tier that cannot match, or would run the query of the tier before it, is skipped
+            if (query == null || query.equals(previous)) {
+                continue;
+            }
+            previous = query;
+            if (tier == SearchTier.FUZZY_1 || tier == SearchTier.FUZZY_2) {
+                metrics.recordFuzzyClauses(((BooleanQuery) query).clauses().size());
+            }
+            page = executeSearch(searchers, scoped(query, scope), SearchMode.AUTO, tier, order, limit, after,
+                    deadline, metrics.recordPhase(SearchMode.AUTO, SearchMetrics.Phase.PARSE, start));
+            start = System.nanoTime();
+            if (page.getResults().size() >= enough || page.isPartial()) {
+                break;
+            }
+        }
+        metrics.recordTier(page.getTier());
+        return page;
+    }
+    
+    /**
+     * Query of one auto search tier, or null if the tier cannot match the query text.
+     */
+    private Query tierQuery(SearchTier tier, String queryText) throws ParseException {
+        switch (tier) {
+            case EXACT:
+                // Only path analysis indexes whole lowercase file names; n-gram analysis splits
+                // them into grams, which would match any name containing the query
+                if (properties.getAnalysis() != LuceneIndexProperties.Analysis.PATH) {
+                    return null;
+                }
+                return new TermQuery(new Term(PathDocuments.FILENAME_FIELD,
+                        PathDocuments.extractFilename(queryText.toLowerCase(Locale.ROOT))));
+            case NGRAM:
+                return ngramQuery(queryText, QueryParser.Operator.AND);
+            case FUZZY_1:
+            case FUZZY_2:
+            default: {
+                BooleanQuery query = fuzzyQueryPlanner.plan(queryText, tier == SearchTier.FUZZY_1 ? 1 : 2);
+                return query.clauses().isEmpty() ? null : query;
+            }
+        }
+    }
+    
+    /**
+     * Hit and miss counters of the result cache, for sizing it.
+     */
+    public SearchResultCache.Stats getResultCacheStats() {
+        return resultCache.getStats();
+    }
+    
+    /**
+     * Canonical form of a query for the given mode, so that queries that cannot give different
+     * results share one cache entry. Case is only folded where the mode ignores it anyway: the
+     * path analyzer splits camelCase words, so case matters for its n-gram queries.
+     */
+    private String normalize(String queryText, SearchMode mode) {
+        String normalized = queryText.trim();
+        // Auto searches follow their n-gram tier; the exact and fuzzy tiers lowercase their own terms
+        if (mode == SearchMode.FUZZY || mode == SearchMode.SUBSEQUENCE
+                || properties.getAnalysis() == LuceneIndexProperties.Analysis.NGRAM) {
+            normalized = normalized.toLowerCase(Locale.ROOT);
+        }
+        return normalized;
+    }
+    
+    /**
+     * Original ngram-based search implementation
+     */
+    private Query ngramQuery(String queryText) throws ParseException {
+        return ngramQuery(queryText, QueryParser.Operator.OR);
+    }
+    
+    /**
+     * @param operator OR matches paths sharing any term with the query, AND only those holding all of them
+     */
+    private Query ngramQuery(String queryText, QueryParser.Operator operator) throws ParseException {
+        return PathDocuments.contentQuery(properties.getAnalysis(), queryAnalyzer, queryText, operator);
+    }
+    
+    /**
+     * Rank in memory and cut out the requested page; the matcher bounds its own work
+     */
+    private SearchPage subsequenceSearch(String queryText, int limit, SearchCursor after) {
+        int offset = after != null ? after.offset() : 0;
+        // One extra path tells whether there is a next page
+        int wanted = (int) Math.min((long) offset + limit + 1, Integer.MAX_VALUE);
+        PathSubsequenceMatcher.Matches matches = subsequenceMatcher.match(queryText, wanted);
+        List<String> ranked = matches.getPaths();
+        List<String> results = ranked.subList(Math.min(offset, ranked.size()), Math.min(offset + limit, ranked.size()));
+        if (!matches.isComplete()) {
+            // Only the first matches in trie order were ranked, so better ones may be missing and
+            // later pages would run out at the candidate cap
+            return new SearchPage(results, null, null, true);
+        }
+        String nextCursor = ranked.size() > offset + limit
+                ? SearchCursor.offset(SearchMode.SUBSEQUENCE, offset + limit).encode()
+                : null;
+        return new SearchPage(results, nextCursor);
+    }
+    
+    /**
+     * Execute a search query on every leased shard in parallel and collect one page of merged
+     * results. Later pages continue after the last hit of the previous page, so every shard only
+     * collects {@code limit} hits as well.
+     * 
+     * @param tier Tier of an auto search the query belongs to, null in other modes
+     * @param deadline When rewriting and collecting must stop, or null to let them finish; a search
+     *                 that runs out of time returns a partial page without a cursor, as hits it
+     *                 did not get to could rank before the ones it found
+     * @param start When the search phase starts, for the phase timers
+     */
+    private SearchPage executeSearch(ShardSearchers searchers, Query query, SearchMode mode, SearchTier tier,
+                                     SearchOrder order, int limit, SearchCursor after, SearchDeadline deadline,
+                                     long start) throws IOException {
+        // Rewriting and collecting must use the same searchers: rewritten queries carry term states
+        // built for their reader
+        ShardSearchers timed = deadline != null ? searchers.bounded(deadline) : searchers;
+        
+        // Rewrite up front so that term expansion is timed apart from collecting hits; terms
+        // differ between shards, so each shard rewrites against its own reader
+        List<Query> rewritten;
+        try {
+            rewritten = timed.fanOut(shardExecutor, (shard, indexSearcher) -> indexSearcher.rewrite(query));
+        } catch (ExitableDirectoryReader.ExitingReaderException e) {
+            // Nothing has been collected yet
+            metrics.recordPhase(mode, SearchMetrics.Phase.REWRITE, start);
+            return new SearchPage(List.of(), null, tier, true);
+        }
+        start = metrics.recordPhase(mode, SearchMetrics.Phase.REWRITE, start);
         
         // Perform search
-        return executeSearch(queryBuilder.build());
+        Sort sort = order == SearchOrder.DEPTH ? PathDocuments.DEPTH_ORDER : null;
+        AtomicBoolean timedOut = new AtomicBoolean();
+        List<TopDocs> shardHits = timed.fanOut(shardExecutor, (shard, indexSearcher) -> {
+            try {
+                TopDocs shardTop = collect(indexSearcher, rewritten.get(shard), sort, limit, after, shard);
+                if (indexSearcher.timedOut()) {
+                    timedOut.set(true);
+                }
+                return shardTop;
+            } catch (ExitableDirectoryReader.ExitingReaderException e) {
+                // The reader ran out of time while creating the weight or reading doc values;
+                // the shard's hits so far are lost, the other shards' are kept
+                timedOut.set(true);
+                return null;
+            }
+        });
+        ScoreDoc[] hits = ShardSearchers.merge(sort, limit, shardHits).scoreDocs;
+        start = metrics.recordPhase(mode, SearchMetrics.Phase.SEARCH, start);
+        
+        // Collect results from the path doc values rather than loading stored documents; document
+        // ids are the same in the bounded searchers, and the page is read even past the deadline
+        List<String> results = searchers.readPaths(hits);
+        metrics.recordPhase(mode, SearchMetrics.Phase.FETCH, start);
+        if (timedOut.get()) {
+            return new SearchPage(results, null, tier, true);
+        }
+        // A full page may be followed by more hits; a short one is the last
+        String nextCursor = hits.length == limit
+                ? SearchCursor.after(mode, tier, order, hits[hits.length - 1]).encode()
+                : null;
+        return new SearchPage(results, nextCursor, tier);
+    }
+    
+    /**
+     * Collect the top hits of one shard, after the cursor position if there is one.
+     */
+    private static TopDocs collect(IndexSearcher indexSearcher, Query query, Sort sort, int limit, SearchCursor after,
+                                   int shard) throws IOException {
+        int maxDoc = indexSearcher.getIndexReader().maxDoc();
+        if (sort != null) {
+            // Counting no more hits than are kept lets each segment sorted in this order stop
+            // once it has collected the limit, instead of visiting every match
+            return indexSearcher.search(query, TopFieldCollector.createSharedManager(
+                    sort, limit, after != null ? after.fieldDoc(shard, maxDoc) : null, limit));
+        }
+        return after != null
+                ? indexSearcher.searchAfter(after.scoreDoc(shard, maxDoc), query, limit)
+                : indexSearcher.search(query, limit);
     }
     
     /**
-     * Execute a search query and collect results
+     * Hands each hit's path from the doc values straight to a consumer, without scoring or buffering
      */
-    private List<String> executeSearch(Query query) throws IOException {
-        // Create index reader and searcher
-        IndexReader indexReader = DirectoryReader.open(directory);
-        IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+    private static final class PathStreamingCollector extends SimpleCollector {
+        private final StreamingSearch.PathConsumer consumer;
+        private SortedDocValues paths;
+        private long count;
         
-        // Perform search
-        TopDocs topDocs = indexSearcher.search(query, 10);
+        PathStreamingCollector(StreamingSearch.PathConsumer consumer) {
+            this.consumer = consumer;
+        }
         
-        // Collect results
-        List<String> results = new ArrayList<>();
-        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-            Document document = indexSearcher.doc(scoreDoc.doc);
-            results.add(document.get(PATH_FIELD));
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) throws IOException {
+            paths = DocValues.getSorted(context.reader(), PATH_FIELD);
         }
         
-        indexReader.close();
+        @Override
+        public void collect(int doc) throws IOException {
+            if (paths.advanceExact(doc)) {
+                consumer.accept(paths.lookupOrd(paths.ordValue()).utf8ToString());
+                count++;
+            }
+        }
         
-        return results;
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+    }
+    
+    /**
+     * Index operation run by the maintenance scheduler
+     */
+    @FunctionalInterface
+    private interface IndexTask {
+        void run() throws IOException;
     }
     
     /**
@@ -0,0 +1,336 @@
+package com.example.lucene.service;
+
+import com.example.lucene.analyzer.ComponentInfixAnalyzer;
+import com.example.lucene.analyzer.CustomNGramAnalyzer;
+import com.example.lucene.analyzer.PathComponentAnalyzer;
+import com.example.lucene.config.LuceneIndexProperties;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.KeywordTokenizer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Field names and document layout shared by everything that writes file paths into the index.
+ */
+public final class PathDocuments {
+
+    public static final String PATH_FIELD = "path";
+    public static final String CONTENT_FIELD = "content";
+    public static final String FILENAME_FIELD = "filename";
+    public static final String INFIX_FIELD = "infix";
+    public static final String RANK_FIELD = "rank";
+
+    /**
+     * Shallowest paths first, then shortest: the index sort of {@code lucene.index.index-sort=DEPTH}
+     * and the order of depth-ordered searches.
+     */
+    public static final Sort DEPTH_ORDER = new Sort(new SortField(RANK_FIELD, SortField.Type.LONG));
+
+    // Gram range shared by both analysis modes
+    private static final int MIN_GRAM = 2;
+    private static final int MAX_GRAM = 10;
+
+    // Size of the grams path analysis indexes for infix queries
+    private static final int INFIX_GRAM = 3;
+    // Weight of the infix phrases, so paths containing the whole query outrank those matching only some of its words
+    private static final float INFIX_BOOST = 2f;
+
+    private PathDocuments() {
+    }
+
+    /**
+     * Build the index document for a single file path.
+     *
+     * @param filePath Path using '/' as the separator
+     * @return Document ready to be added to an IndexWriter
+     */
+    public static Document create(String filePath) {
+        Document document = new Document();
+
+        // Index the path as a single term, for updates and deletions by path (not stored)
+        document.add(new StringField(PATH_FIELD, filePath, Field.Store.NO));
+        
+        // The path itself lives only in the sorted doc values: a per-segment, prefix-compressed
+        // dictionary of paths addressed by ordinal, read off-heap when the index is memory-mapped
+        document.add(new SortedDocValuesField(PATH_FIELD, new BytesRef(filePath)));
+
+        // Position in depth order, for index sorting and depth-ordered searches
+        document.add(new NumericDocValuesField(RANK_FIELD, rank(filePath)));
+
+        // Add the path also as a text field for searching (tokenized)
+        document.add(new TextField(CONTENT_FIELD, filePath, Field.Store.NO));
+
+        // Extract and store filename separately for fuzzy search
+        String filename = extractFilename(filePath);
+        document.add(new TextField(FILENAME_FIELD, filename, Field.Store.NO));
+
+        // Grams inside components for infix queries; only path analysis produces terms for it
+        document.add(new TextField(INFIX_FIELD, filePath, Field.Store.NO));
+
+        return document;
+    }
+
+    /**
+     * Sort key of a path in {@link #DEPTH_ORDER}: the number of '/' separators in the high
+     * half and the length in the low half.
+     */
+    public static long rank(String filePath) {
+        int depth = 0;
+        for (int i = 0; i < filePath.length(); i++) {
+            if (filePath.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return ((long) depth << 32) | filePath.length();
+    }
+
+    /**
+     * Analyzer used by the IndexWriter for the given analysis mode.
+     */
+    public static Analyzer indexAnalyzer(LuceneIndexProperties.Analysis analysis) {
+        switch (analysis) {
+            case PATH:
+                // Whole lowercase filenames keep fuzzy filename matching working without n-grams
+                return new PerFieldAnalyzerWrapper(
+                        new PathComponentAnalyzer(MIN_GRAM, MAX_GRAM, true),
+                        Map.of(FILENAME_FIELD, new LowercaseKeywordAnalyzer(),
+                                INFIX_FIELD, new ComponentInfixAnalyzer(INFIX_GRAM)));
+            case NGRAM:
+            default:
+                // Create analyzer with nGram (min=2, max=10) and lowercase filter; content
+                // n-grams already match infixes, so the infix field is left empty
+                return new PerFieldAnalyzerWrapper(
+                        new CustomNGramAnalyzer(MIN_GRAM, MAX_GRAM),
+                        Map.of(INFIX_FIELD, new NoTokensAnalyzer()));
+        }
+    }
+
+    /**
+     * Analyzer used to parse {@link #CONTENT_FIELD} and {@link #INFIX_FIELD} queries for the given
+     * analysis mode.
+     */
+    public static Analyzer queryAnalyzer(LuceneIndexProperties.Analysis analysis) {
+        switch (analysis) {
+            case PATH:
+                return new PerFieldAnalyzerWrapper(
+                        new PathComponentAnalyzer(MIN_GRAM, MAX_GRAM, false),
+                        Map.of(INFIX_FIELD, new ComponentInfixAnalyzer(INFIX_GRAM)));
+            case NGRAM:
+            default:
+                return new CustomNGramAnalyzer(MIN_GRAM, MAX_GRAM);
+        }
+    }
+
+    /**
+     * Query matching paths that contain the query text, as the given analysis mode indexes them.
+     *
+     * Path analysis only indexes prefixes of components and words, so it also looks for every
+     * whitespace separated part of the query as a phrase of {@link #INFIX_FIELD} grams, which
+     * matches the paths containing it anywhere in a component. Paths where the text starts a
+     * component or word match both and rank first.
+     *
+     * @param queryAnalyzer Analyzer from {@link #queryAnalyzer} for the same mode
+     * @param operator      OR matches paths sharing any term with the query, AND only those holding all of them
+     */
+    public static Query contentQuery(LuceneIndexProperties.Analysis analysis, Analyzer queryAnalyzer,
+                                     String queryText, QueryParser.Operator operator) throws ParseException {
+        QueryParser queryParser = new QueryParser(CONTENT_FIELD, queryAnalyzer);
+        queryParser.setDefaultOperator(operator);
+        // Escape special characters to avoid query syntax errors
+        Query query = queryParser.parse(QueryParser.escape(queryText));
+        if (analysis != LuceneIndexProperties.Analysis.PATH) {
+            return query;
+        }
+
+        BooleanQuery.Builder infix = new BooleanQuery.Builder();
+        boolean anyPhrase = false;
+        for (String part : queryText.trim().split("\\s+")) {
+            PhraseQuery phrase = infixPhrase(queryAnalyzer, part);
+            // Parts shorter than a gram can only match where a component or word starts
+            if (phrase != null) {
+                infix.add(phrase, BooleanClause.Occur.MUST);
+                anyPhrase = true;
+            }
+        }
+        if (!anyPhrase) {
+            return query;
+        }
+        return new BooleanQuery.Builder()
+                .add(query, BooleanClause.Occur.SHOULD)
+                .add(new BoostQuery(infix.build(), INFIX_BOOST), BooleanClause.Occur.SHOULD)
+                .build();
+    }
+
+    /**
+     * Phrase of the {@link #INFIX_FIELD} grams of one query part, or null if it has none.
+     */
+    private static PhraseQuery infixPhrase(Analyzer queryAnalyzer, String part) {
+        PhraseQuery.Builder phrase = new PhraseQuery.Builder();
+        int terms = 0;
+        try (TokenStream tokens = queryAnalyzer.tokenStream(INFIX_FIELD, part)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            PositionIncrementAttribute increment = tokens.addAttribute(PositionIncrementAttribute.class);
+            int position = -1;
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                position += increment.getPositionIncrement();
+                phrase.add(new Term(INFIX_FIELD, term.toString()), position);
+                terms++;
+            }
+            tokens.end();
+        } catch (IOException e) {
+            throw new IllegalStateException("Analyzing a string cannot fail", e);
+        }
+        return terms == 0 ? null : phrase.build();
+    }
+
+    /**
+     * Filter matching every path below a directory: one range of {@link #PATH_FIELD} doc values
+     * ordinals per segment, see {@link SubtreeQuery}.
+     *
+     * @param directory Directory path without a trailing '/'; empty for the whole index
+     */
+    public static Query subtreeQuery(String directory) {
+        return directory.isEmpty() ? new MatchAllDocsQuery() : new SubtreeQuery(PATH_FIELD, directory);
+    }
+
+    /**
+     * Look up the paths of search hits in the {@link #PATH_FIELD} doc values.
+     * Hits are visited in doc id order, so each segment's doc values are only read forward.
+     *
+     * @param reader Reader the hits came from
+     * @param hits   Hits in rank order
+     * @return Paths in the same order as the hits
+     */
+    public static List<String> readPaths(IndexReader reader, ScoreDoc[] hits) throws IOException {
+        // Sort hit positions by doc id: doc id in the high bits, position in the low bits
+        long[] order = new long[hits.length];
+        for (int i = 0; i < hits.length; i++) {
+            order[i] = ((long) hits[i].doc << 32) | i;
+        }
+        Arrays.sort(order);
+
+        String[] paths = new String[hits.length];
+        List<LeafReaderContext> leaves = reader.leaves();
+        LeafReaderContext leaf = null;
+        SortedDocValues values = null;
+        for (long entry : order) {
+            int doc = (int) (entry >>> 32);
+            if (leaf == null || doc >= leaf.docBase + leaf.reader().maxDoc()) {
+                leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+                values = DocValues.getSorted(leaf.reader(), PATH_FIELD);
+            }
+            if (!values.advanceExact(doc - leaf.docBase)) {
+                throw new IllegalStateException("Document " + doc + " has no path doc values");
+            }
+            paths[(int) entry] = values.lookupOrd(values.ordValue()).utf8ToString();
+        }
+        return new ArrayList<>(Arrays.asList(paths));
+    }
+
+    /**
+     * Hand the path of every live document to the action, in index order.
+     */
+    public static void forEachPath(IndexReader reader, Consumer<String> action) throws IOException {
+        for (LeafReaderContext leaf : reader.leaves()) {
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            SortedDocValues paths = DocValues.getSorted(leaf.reader(), PATH_FIELD);
+            for (int doc = paths.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = paths.nextDoc()) {
+                if (liveDocs == null || liveDocs.get(doc)) {
+                    action.accept(paths.lookupOrd(paths.ordValue()).utf8ToString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Length of the longest term the given analysis mode indexes, or
+     * {@link Integer#MAX_VALUE} if whole words or file names are kept.
+     */
+    public static int maxTermLength(LuceneIndexProperties.Analysis analysis) {
+        // Only the n-gram mode caps every term; the path mode also indexes whole words and file names
+        return analysis == LuceneIndexProperties.Analysis.NGRAM ? MAX_GRAM : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Length of the shortest term the given analysis mode indexes.
+     */
+    public static int minTermLength(LuceneIndexProperties.Analysis analysis) {
+        return analysis == LuceneIndexProperties.Analysis.NGRAM ? MIN_GRAM : 1;
+    }
+
+    /**
+     * Return the last component of a '/' separated path.
+     */
+    public static String extractFilename(String path) {
+        int lastSlash = path.lastIndexOf('/');
+        if (lastSlash >= 0 && lastSlash < path.length() - 1) {
+            return path.substring(lastSlash + 1);
+        }
+        return path;
+    }
+
+    /**
+     * Indexes nothing, for fields a mode does not search.
+     */
+    private static final class NoTokensAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new Tokenizer() {
+                @Override
+                public boolean incrementToken() {
+                    return false;
+                }
+            };
+            return new TokenStreamComponents(tokenizer);
+        }
+    }
+
+    /**
+     * Indexes the whole value as a single lowercase term.
+     */
+    private static final class LowercaseKeywordAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new KeywordTokenizer();
+            return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+        }
+    }
+}
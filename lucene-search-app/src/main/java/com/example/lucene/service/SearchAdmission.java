@@ -0,0 +1,75 @@
+package com.example.lucene.service;
+
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the searches of each mode that run at once and that may wait for a turn.
+ * <p>
+ * Every mode has its own limits, so a burst of expensive fuzzy searches cannot hold up n-gram
+ * searches. A search that finds the queue full is rejected immediately; one that is queued waits
+ * at most until its deadline. Both keep overload from piling up requests whose clients have long
+ * given up.
+ */
+final class SearchAdmission {
+
+    /**
+     * Slot of an admitted search, released when it is closed.
+     */
+    interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final Permit UNLIMITED = () -> { };
+
+    private final Map<SearchMode, Semaphore> admitted = new EnumMap<>(SearchMode.class);
+    private final Map<SearchMode, Semaphore> running = new EnumMap<>(SearchMode.class);
+
+    /**
+     * @param maxConcurrent Searches of one mode running at once; 0 admits every search immediately
+     * @param maxQueued     Searches of one mode that may wait for a running one to finish
+     */
+    SearchAdmission(int maxConcurrent, int maxQueued) {
+        if (maxConcurrent <= 0) {
+            return;
+        }
+        for (SearchMode mode : SearchMode.values()) {
+            admitted.put(mode, new Semaphore(maxConcurrent + maxQueued));
+            running.put(mode, new Semaphore(maxConcurrent, true));
+        }
+    }
+
+    /**
+     * Wait for a slot to run a search of the given mode.
+     *
+     * @throws SearchRejectedException if the queue is full, or no slot freed up before the deadline
+     */
+    Permit admit(SearchMode mode, SearchDeadline deadline) throws InterruptedIOException {
+        Semaphore slots = admitted.get(mode);
+        if (slots == null) {
+            return UNLIMITED;
+        }
+        if (!slots.tryAcquire()) {
+            throw new SearchRejectedException(mode, true);
+        }
+        Semaphore runs = running.get(mode);
+        try {
+            if (!runs.tryAcquire(deadline.remainingNanos(), TimeUnit.NANOSECONDS)) {
+                slots.release();
+                throw new SearchRejectedException(mode, false);
+            }
+        } catch (InterruptedException e) {
+            slots.release();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a search slot");
+        }
+        return () -> {
+            runs.release();
+            slots.release();
+        };
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.lucene.service;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Position after the last result of a page, handed to clients as an opaque URL-safe string.
+ *
+ * Lucene modes remember the score (or, in depth order, the rank), doc id and shard of the last hit,
+ * so the next page is collected after it on every shard and costs the same as the first one. Subsequence search ranks
+ * in memory and remembers a plain offset. Auto searches also remember the tier that answered the
+ * first page, so later pages continue with the same query. Doc ids are only stable while the index is unchanged,
+ * so after a refresh a cursor may skip or repeat a few paths.
+ */
+final class SearchCursor {
+
+    private static final byte FORMAT = 4;
+
+    private final SearchMode mode;
+    private final SearchTier tier;
+    private final SearchOrder order;
+    private final float score;
+    private final long rank;
+    private final int doc;
+    private final int shard;
+    private final int offset;
+
+    private SearchCursor(SearchMode mode, SearchTier tier, SearchOrder order, float score, long rank, int doc, int shard,
+                         int offset) {
+        this.mode = mode;
+        this.tier = tier;
+        this.order = order;
+        this.score = score;
+        this.rank = rank;
+        this.doc = doc;
+        this.shard = shard;
+        this.offset = offset;
+    }
+
+    /**
+     * @param tier Tier that answered an auto search, null in other modes
+     * @param last Last hit of the page, merged from all shards so that its shard index is set;
+     *             a {@link FieldDoc} holding the rank in depth order
+     */
+    static SearchCursor after(SearchMode mode, SearchTier tier, SearchOrder order, ScoreDoc last) {
+        long rank = order == SearchOrder.DEPTH ? (Long) ((FieldDoc) last).fields[0] : 0;
+        return new SearchCursor(mode, tier, order, last.score, rank, last.doc, last.shardIndex, 0);
+    }
+
+    static SearchCursor offset(SearchMode mode, int offset) {
+        return new SearchCursor(mode, null, SearchOrder.RELEVANCE, 0, 0, 0, 0, offset);
+    }
+
+    /**
+     * Tier that answered the first page of an auto search, null in other modes.
+     */
+    SearchTier tier() {
+        return tier;
+    }
+
+    /**
+     * Where the next page starts within one shard, in relevance order.
+     *
+     * @param maxDoc Doc id bound of the shard's reader
+     */
+    ScoreDoc scoreDoc(int shard, int maxDoc) {
+        return new ScoreDoc(docIn(shard, maxDoc), score);
+    }
+
+    /**
+     * Where the next page starts within one shard, in depth order.
+     *
+     * @param maxDoc Doc id bound of the shard's reader
+     */
+    FieldDoc fieldDoc(int shard, int maxDoc) {
+        return new FieldDoc(docIn(shard, maxDoc), Float.NaN, new Object[] {rank});
+    }
+
+    /**
+     * Merged hits that tie on score or rank are ordered by shard, then doc id: earlier shards have
+     * nothing left at the last hit's value, later shards have all of theirs left.
+     */
+    private int docIn(int shard, int maxDoc) {
+        if (shard == this.shard) {
+            return doc;
+        }
+        return shard < this.shard ? maxDoc - 1 : -1;
+    }
+
+    int offset() {
+        return offset;
+    }
+
+    String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + Float.BYTES + Long.BYTES + 3 * Integer.BYTES)
+                .put(FORMAT)
+                .put((byte) mode.ordinal())
+                .put((byte) (tier != null ? tier.ordinal() : -1))
+                .put((byte) order.ordinal())
+                .putFloat(score)
+                .putLong(rank)
+                .putInt(doc)
+                .putInt(shard)
+                .putInt(offset);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @param shardCount Shards of the index, which the cursor's shard must be one of
+     * @param maxOffset  Largest offset a page can start at; beyond it there are no results
+     * @throws IllegalArgumentException if the cursor is malformed, out of range, or belongs to
+     *                                  another search mode or order
+     */
+    static SearchCursor decode(String cursor, SearchMode mode, SearchOrder order, int shardCount, int maxOffset) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor));
+            if (buffer.get() != FORMAT || buffer.get() != mode.ordinal()) {
+                throw new IllegalArgumentException("Cursor does not belong to a " + mode + " search");
+            }
+            // Only auto searches have a tier
+            int tier = buffer.get();
+            if ((mode == SearchMode.AUTO) != (tier >= 0) || tier >= SearchTier.values().length) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            if (buffer.get() != order.ordinal()) {
+                throw new IllegalArgumentException("Cursor does not belong to a search in " + order + " order");
+            }
+            SearchCursor decoded = new SearchCursor(mode, tier >= 0 ? SearchTier.values()[tier] : null, order,
+                    buffer.getFloat(), buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+            if (buffer.hasRemaining() || decoded.doc < 0 || decoded.shard < 0 || decoded.shard >= shardCount
+                    || decoded.offset < 0 || decoded.offset > maxOffset) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return decoded;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.lucene.service;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.ExitableDirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.QueryTimeout;
+import org.apache.lucene.search.IndexSearcher;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Point in time by which one search must have finished.
+ * <p>
+ * A search is bounded through a per-request searcher over an {@link ExitableDirectoryReader} of the
+ * shared reader, so other searches are not affected. The reader checks the deadline in term
+ * enumeration and lookups, and in doc values and points reads, so it covers rewriting (fuzzy
+ * expansion) and weight creation (term statistics), and gives up with an
+ * {@link ExitableDirectoryReader.ExitingReaderException}. The searcher's
+ * {@link IndexSearcher#setTimeout timeout} checks it between blocks of documents while collecting,
+ * and keeps the hits found so far. Parsing the query and reading the paths of the hits are not
+ * bounded; the latter reads at most the page limit of documents.
+ */
+final class SearchDeadline implements QueryTimeout {
+
+    private static final SearchDeadline NONE = new SearchDeadline(0);
+
+    private final long deadlineNanos;
+
+    private SearchDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * @param timeout Time the search may take from now; zero or negative never expires
+     */
+    static SearchDeadline after(Duration timeout) {
+        if (timeout.isZero() || timeout.isNegative()) {
+            return NONE;
+        }
+        return new SearchDeadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    @Override
+    public boolean shouldExit() {
+        return this != NONE && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * Nanoseconds left, or {@link Long#MAX_VALUE} if the deadline never expires.
+     */
+    long remainingNanos() {
+        return this != NONE ? Math.max(0, deadlineNanos - System.nanoTime()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Searcher over the same segments, slices and executor that checks the deadline, for both
+     * rewriting and collecting one query: rewritten queries hold term states built for its reader,
+     * so collecting with another searcher would look every term up again and lose the blended
+     * statistics of fuzzy rewrites. Documents keep their ids, so hits can be read from the shared
+     * searcher.
+     */
+    IndexSearcher bound(IndexSearcher searcher) throws IOException {
+        if (this == NONE) {
+            return searcher;
+        }
+        DirectoryReader reader = ExitableDirectoryReader.wrap((DirectoryReader) searcher.getIndexReader(), this);
+        IndexSearcher.LeafSlice[] sharedSlices = searcher.getSlices();
+        IndexSearcher bounded = new IndexSearcher(reader, searcher.getExecutor()) {
+            @Override
+            protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+                // The wrapper has the shared reader's segments in the same order, so slice it the same way
+                LeafSlice[] slices = new LeafSlice[sharedSlices.length];
+                for (int i = 0; i < slices.length; i++) {
+                    List<LeafReaderContext> slice = new ArrayList<>(sharedSlices[i].leaves.length);
+                    for (LeafReaderContext leaf : sharedSlices[i].leaves) {
+                        slice.add(leaves.get(leaf.ord));
+                    }
+                    slices[i] = new LeafSlice(slice);
+                }
+                return slices;
+            }
+        };
+        bounded.setSimilarity(searcher.getSimilarity());
+        bounded.setQueryCache(searcher.getQueryCache());
+        bounded.setQueryCachingPolicy(searcher.getQueryCachingPolicy());
+        bounded.setTimeout(this);
+        return bounded;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.lucene.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micrometer meters of the search hot path.
+ *
+ * Every meter is registered up front, one per mode and phase, so recording a search only reads
+ * the clock and updates the meters it already holds. Timers publish percentile histograms, which
+ * the Prometheus endpoint exposes as {@code _bucket} series.
+ *
+ * <ul>
+ *   <li>{@code lucene.search} - total time of a search, by mode and whether it was a result cache hit</li>
+ *   <li>{@code lucene.search.phase} - time per phase (parse, rewrite, search, fetch), by mode</li>
+ *   <li>{@code lucene.search.hits} - paths returned, by mode</li>
+ *   <li>{@code lucene.search.fuzzy.clauses} - clauses of the planned fuzzy queries</li>
+ *   <li>{@code lucene.search.timeouts} - searches that ran out of time and returned partial results, by mode</li>
+ *   <li>{@code lucene.search.rejected} - searches turned away by admission control, by mode and reason</li>
+ *   <li>{@code lucene.search.auto.tier} - auto searches answered, by tier; phases of auto searches are timed per tier run</li>
+ *   <li>{@code lucene.suggest} - time of a prefix suggestion lookup</li>
+ *   <li>{@code lucene.index.documents} - documents visible to the current searcher</li>
+ * </ul>
+ */
+class SearchMetrics {
+
+    /**
+     * Steps of a search that are timed separately.
+     */
+    enum Phase {
+        /** Waiting for admission, when too many searches of the mode are running */
+        QUEUE,
+        /** Building the Lucene query from the query text */
+        PARSE,
+        /** Rewriting it into primitive queries, e.g. expanding fuzzy terms */
+        REWRITE,
+        /** Collecting the top hits, or ranking candidates in subsequence mode */
+        SEARCH,
+        /** Resolving hits to paths */
+        FETCH
+    }
+
+    // Histogram bucket range; searches outside it still count towards the extreme buckets
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(10_000);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(10);
+
+    private final Map<SearchMode, Timer> cachedTotal = new EnumMap<>(SearchMode.class);
+    private final Map<SearchMode, Timer> uncachedTotal = new EnumMap<>(SearchMode.class);
+    private final Map<SearchMode, Map<Phase, Timer>> phases = new EnumMap<>(SearchMode.class);
+    private final Map<SearchMode, Counter> hits = new EnumMap<>(SearchMode.class);
+    private final Map<SearchMode, Counter> timeouts = new EnumMap<>(SearchMode.class);
+    private final Map<SearchMode, Counter> queueFull = new EnumMap<>(SearchMode.class);
+    private final Map<SearchMode, Counter> queueTimeout = new EnumMap<>(SearchMode.class);
+    private final Counter fuzzyClauses;
+    private final Map<SearchTier, Counter> tiers = new EnumMap<>(SearchTier.class);
+    private final Timer suggest;
+    private final AtomicLong documents = new AtomicLong();
+
+    SearchMetrics(MeterRegistry registry) {
+        for (SearchMode mode : SearchMode.values()) {
+            String modeTag = tagValue(mode);
+            cachedTotal.put(mode, timer("lucene.search", "Total time of a search")
+                    .tag("mode", modeTag).tag("cache", "hit").register(registry));
+            uncachedTotal.put(mode, timer("lucene.search", "Total time of a search")
+                    .tag("mode", modeTag).tag("cache", "miss").register(registry));
+
+            // Subsequence search ranks paths in memory, without a query to parse or hits to fetch
+            Set<Phase> modeSteps = mode == SearchMode.SUBSEQUENCE ? EnumSet.of(Phase.QUEUE, Phase.SEARCH) : EnumSet.allOf(Phase.class);
+            Map<Phase, Timer> modePhases = new EnumMap<>(Phase.class);
+            for (Phase phase : modeSteps) {
+                modePhases.put(phase, timer("lucene.search.phase", "Time spent in one phase of a search")
+                        .tag("mode", modeTag).tag("phase", phase.name().toLowerCase(Locale.ROOT)).register(registry));
+            }
+            phases.put(mode, modePhases);
+
+            hits.put(mode, Counter.builder("lucene.search.hits")
+                    .description("Paths returned by searches")
+                    .tag("mode", modeTag)
+                    .register(registry));
+            timeouts.put(mode, Counter.builder("lucene.search.timeouts")
+                    .description("Searches that ran out of time and returned partial results")
+                    .tag("mode", modeTag)
+                    .register(registry));
+            queueFull.put(mode, rejected(modeTag, "queue_full").register(registry));
+            queueTimeout.put(mode, rejected(modeTag, "queue_timeout").register(registry));
+        }
+        fuzzyClauses = Counter.builder("lucene.search.fuzzy.clauses")
+                .description("Clauses built for fuzzy queries")
+                .register(registry);
+        for (SearchTier tier : SearchTier.values()) {
+            tiers.put(tier, Counter.builder("lucene.search.auto.tier")
+                    .description("Auto searches answered by a tier")
+                    .tag("tier", tier.name().toLowerCase(Locale.ROOT))
+                    .register(registry));
+        }
+        suggest = timer("lucene.suggest", "Time of a prefix suggestion lookup").register(registry);
+        Gauge.builder("lucene.index.documents", documents, AtomicLong::get)
+                .description("Documents visible to the current searcher")
+                .register(registry);
+    }
+
+    /**
+     * Record a phase that started at {@code startNanos}.
+     *
+     * @return The current time, which is where the next phase starts
+     */
+    long recordPhase(SearchMode mode, Phase phase, long startNanos) {
+        long now = System.nanoTime();
+        phases.get(mode).get(phase).record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    void recordSearch(SearchMode mode, boolean cacheHit, long startNanos, int hitCount) {
+        (cacheHit ? cachedTotal : uncachedTotal).get(mode).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        hits.get(mode).increment(hitCount);
+    }
+
+    void recordTimeout(SearchMode mode) {
+        timeouts.get(mode).increment();
+    }
+
+    void recordRejected(SearchMode mode, boolean wasQueueFull) {
+        (wasQueueFull ? queueFull : queueTimeout).get(mode).increment();
+    }
+
+    void recordFuzzyClauses(int clauses) {
+        fuzzyClauses.increment(clauses);
+    }
+
+    void recordTier(SearchTier tier) {
+        tiers.get(tier).increment();
+    }
+
+    void recordSuggest(long startNanos) {
+        suggest.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void setDocumentCount(long count) {
+        documents.set(count);
+    }
+
+    private static Timer.Builder timer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED);
+    }
+
+    private static Counter.Builder rejected(String modeTag, String reason) {
+        return Counter.builder("lucene.search.rejected")
+                .description("Searches turned away by admission control")
+                .tag("mode", modeTag)
+                .tag("reason", reason);
+    }
+
+    private static String tagValue(SearchMode mode) {
+        return mode.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.lucene.service;
+
+import java.util.Locale;
+
+/**
+ * How {@link LuceneService#search(String, SearchMode)} matches a query against file paths.
+ */
+public enum SearchMode {
+    /** Analyzed n-gram (or path component) terms, good for substrings */
+    NGRAM,
+    /** FuzzyQuery with up to two edits, good for typos */
+    FUZZY,
+    /** Characters in order anywhere in the path, like an IDE "go to file" box */
+    SUBSEQUENCE,
+    /** Cheapest {@link SearchTier} that finds enough paths, falling back to fuzzy matching only when needed */
+    AUTO;
+
+    /**
+     * Case-insensitive lookup, so request parameters such as {@code mode=fuzzy} work.
+     *
+     * @throws IllegalArgumentException if there is no such mode
+     */
+    public static SearchMode parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
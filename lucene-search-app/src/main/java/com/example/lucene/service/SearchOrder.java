@@ -0,0 +1,22 @@
+package com.example.lucene.service;
+
+import java.util.Locale;
+
+/**
+ * Order of the paths a search returns.
+ */
+public enum SearchOrder {
+    /** Best scoring paths first */
+    RELEVANCE,
+    /** Shallowest, then shortest paths first, without scoring; stops early on a depth-sorted index */
+    DEPTH;
+
+    /**
+     * Case-insensitive lookup, so request parameters such as {@code order=depth} work.
+     *
+     * @throws IllegalArgumentException if there is no such order
+     */
+    public static SearchOrder parse(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.lucene.service;
+
+import java.util.List;
+
+/**
+ * One page of search results and the cursor for the page after it.
+ */
+public class SearchPage {
+    private final List<String> results;
+    private final String nextCursor;
+    private final SearchTier tier;
+    private final boolean partial;
+
+    public SearchPage(List<String> results, String nextCursor) {
+        this(results, nextCursor, null);
+    }
+
+    public SearchPage(List<String> results, String nextCursor, SearchTier tier) {
+        this(results, nextCursor, tier, false);
+    }
+
+    public SearchPage(List<String> results, String nextCursor, SearchTier tier, boolean partial) {
+        this.results = List.copyOf(results);
+        this.nextCursor = nextCursor;
+        this.tier = tier;
+        this.partial = partial;
+    }
+
+    // Getters
+    public List<String> getResults() { return results; }
+    /** Opaque cursor for the next page, or null if this is the last one */
+    public String getNextCursor() { return nextCursor; }
+    /** Tier that answered an auto search, or null in every other mode */
+    public SearchTier getTier() { return tier; }
+    /**
+     * Whether better matches may be missing and there is no next page: the search ran out of time,
+     * or a subsequence search reached its candidate cap
+     */
+    public boolean isPartial() { return partial; }
+}
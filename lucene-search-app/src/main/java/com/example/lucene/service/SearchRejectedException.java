@@ -0,0 +1,33 @@
+package com.example.lucene.service;
+
+/**
+ * Thrown when a search is turned away because too many searches of its mode are already running
+ * or waiting, so that overload sheds requests instead of letting every one of them slow down.
+ */
+public class SearchRejectedException extends RuntimeException {
+
+    private final boolean queueFull;
+
+    SearchRejectedException(SearchMode mode, boolean queueFull) {
+        super(queueFull
+                ? "Too many " + mode + " searches waiting"
+                : "No " + mode + " search slot freed up before the deadline");
+        this.queueFull = queueFull;
+    }
+
+    /**
+     * Rejection on arrival for a reason other than a full queue of one mode.
+     */
+    SearchRejectedException(String message) {
+        super(message);
+        this.queueFull = true;
+    }
+
+    /**
+     * Whether the search was rejected on arrival because the queue was full, rather than after
+     * waiting in it until its deadline.
+     */
+    public boolean isQueueFull() {
+        return queueFull;
+    }
+}
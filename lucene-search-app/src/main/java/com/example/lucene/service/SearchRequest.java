@@ -0,0 +1,27 @@
+package com.example.lucene.service;
+
+/**
+ * One query of a batch search: the query text, how to match it and how many paths to return.
+ */
+public class SearchRequest {
+    private String query;
+    private SearchMode mode = SearchMode.NGRAM;
+    private int limit = LuceneService.DEFAULT_LIMIT;
+
+    public SearchRequest() {
+    }
+
+    public SearchRequest(String query, SearchMode mode, int limit) {
+        this.query = query;
+        this.mode = mode;
+        this.limit = limit;
+    }
+
+    // Getters and setters
+    public String getQuery() { return query; }
+    public void setQuery(String query) { this.query = query; }
+    public SearchMode getMode() { return mode; }
+    public void setMode(SearchMode mode) { this.mode = mode; }
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+}
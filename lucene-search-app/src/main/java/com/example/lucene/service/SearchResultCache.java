@@ -0,0 +1,176 @@
+package com.example.lucene.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of first result pages, keyed on normalized query text, search mode and top-k.
+ *
+ * Every entry remembers the version of the data it was computed from, normally the index reader,
+ * and is only served to searches running against that same version, so a result never outlives
+ * the change that made it stale. {@link #invalidate()} drops everything at once after a refresh.
+ *
+ * Safe for concurrent use.
+ */
+public class SearchResultCache {
+
+    private final int maxEntries;
+    private final Map<Key, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param maxEntries Number of results kept before the least recently used one is evicted; 0 disables caching
+     */
+    public SearchResultCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        // Access order turns the map into an LRU list
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > SearchResultCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cached results for the query in the given order within the scope directory (empty for the whole
+     * index), or null if there are none for this version.
+     */
+    public SearchPage get(String query, SearchMode mode, SearchOrder order, String scope, int topK,
+                          long version) {
+        if (maxEntries <= 0) {
+            return null;
+        }
+        Key key = new Key(query, mode, order, scope, topK);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.version != version) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.results;
+    }
+
+    public void put(String query, SearchMode mode, SearchOrder order, String scope, int topK, long version,
+                    SearchPage results) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        Entry entry = new Entry(version, results);
+        synchronized (entries) {
+            entries.put(new Key(query, mode, order, scope, topK), entry);
+        }
+    }
+
+    /**
+     * Drop every cached result, typically because the searcher was refreshed.
+     */
+    public void invalidate() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        invalidations.incrementAndGet();
+    }
+
+    public Stats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(hits.get(), misses.get(), evictions.get(), invalidations.get(), size, maxEntries);
+    }
+
+    private static final class Key {
+        private final String query;
+        private final SearchMode mode;
+        private final SearchOrder order;
+        private final String scope;
+        private final int topK;
+
+        Key(String query, SearchMode mode, SearchOrder order, String scope, int topK) {
+            this.query = query;
+            this.mode = mode;
+            this.order = order;
+            this.scope = scope;
+            this.topK = topK;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return topK == other.topK && mode == other.mode && order == other.order && query.equals(other.query)
+                    && Objects.equals(scope, other.scope);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, mode, order, scope, topK);
+        }
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final SearchPage results;
+
+        Entry(long version, SearchPage results) {
+            this.version = version;
+            this.results = results;
+        }
+    }
+
+    /**
+     * Counters for sizing the cache; the hit rate is hits over all lookups.
+     */
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+        private final int size;
+        private final int maxEntries;
+
+        public Stats(long hits, long misses, long evictions, long invalidations, int size, int maxEntries) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.size = size;
+            this.maxEntries = maxEntries;
+        }
+
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups > 0 ? hits / (double) lookups : 0;
+        }
+
+        // Getters
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public long getInvalidations() { return invalidations; }
+        public int getSize() { return size; }
+        public int getMaxEntries() { return maxEntries; }
+    }
+}
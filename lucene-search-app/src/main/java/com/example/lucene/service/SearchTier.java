@@ -0,0 +1,16 @@
+package com.example.lucene.service;
+
+/**
+ * Steps of an {@link SearchMode#AUTO} search, from the cheapest and most precise to the most
+ * forgiving. Each tier only runs when the ones before it found too few paths.
+ */
+public enum SearchTier {
+    /** File name equal to the query's last component, a single term lookup; path analysis only */
+    EXACT,
+    /** Paths holding every n-gram (or component prefix) of the query, not just some of them */
+    NGRAM,
+    /** Fuzzy matching with at most one edit per term */
+    FUZZY_1,
+    /** Fuzzy matching with up to two edits, the full {@link SearchMode#FUZZY} query */
+    FUZZY_2
+}
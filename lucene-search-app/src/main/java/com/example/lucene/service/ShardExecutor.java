@@ -0,0 +1,127 @@
+package com.example.lucene.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the per-shard parts of one search in parallel.
+ *
+ * The calling thread always takes part: it runs the first task itself, then every task that no
+ * pool thread has picked up yet. A saturated pool therefore slows a search down to serial speed
+ * instead of queueing it, and a search that is itself running on a pool (batch searches) can
+ * never wait for tasks stuck behind it.
+ */
+final class ShardExecutor {
+
+    // Shard tasks that may wait per pool thread before callers run them all themselves
+    private static final int QUEUED_TASKS_PER_THREAD = 64;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param threads Pool threads; 0 runs every task on the calling thread
+     */
+    ShardExecutor(int threads) {
+        if (threads == 0) {
+            executor = null;
+            return;
+        }
+        AtomicInteger shardThreads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUED_TASKS_PER_THREAD), runnable -> {
+            Thread thread = new Thread(runnable, "lucene-shard-" + shardThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Run all tasks and wait until every one of them has finished, even if one fails.
+     *
+     * @return Results in task order
+     */
+    <T> List<T> invokeAll(List<ShardTask<T>> tasks) throws IOException {
+        List<FutureTask<T>> futures = new ArrayList<>(tasks.size());
+        for (ShardTask<T> task : tasks) {
+            futures.add(new FutureTask<>(() -> {
+                try {
+                    return task.call();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        if (executor != null) {
+            // The first task is the caller's; discarded tasks are picked up by the caller below
+            for (int i = 1; i < futures.size(); i++) {
+                try {
+                    executor.execute(futures.get(i));
+                } catch (RejectedExecutionException e) {
+                    // Shut down; the caller runs it
+                }
+            }
+        }
+        // Running a task that a pool thread has already started or finished does nothing
+        for (FutureTask<T> future : futures) {
+            future.run();
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (FutureTask<T> future : futures) {
+            while (true) {
+                try {
+                    results.add(future.get());
+                    break;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    // Searchers are released once this returns, so wait for running tasks regardless
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for shard searches");
+        }
+        if (failure instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) failure).getCause();
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        return results;
+    }
+
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The part of a search that runs against one shard
+     */
+    @FunctionalInterface
+    interface ShardTask<T> {
+        T call() throws IOException;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.lucene.service;
+
+import com.example.lucene.config.LuceneIndexProperties;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+
+import java.util.List;
+
+/**
+ * Decides which shard a path is indexed in, and which shards a directory's paths can be in.
+ *
+ * The mapping must not change for the lifetime of an index, so it only depends on the path, the
+ * shard count, the routing and the root names, never on the JVM's {@code String.hashCode}.
+ * Crawled paths start with the name of their root, so top-level routing keys on the first
+ * component below it; keying on the root name would put a whole root in one shard.
+ */
+final class ShardRouter {
+
+    /** Returned by {@link #shardOfDirectory} when the directory's paths may be in any shard */
+    static final int ALL_SHARDS = -1;
+
+    private final int shardCount;
+    private final LuceneIndexProperties.Shards.Routing routing;
+    private final List<String> rootPrefixes;
+
+    /**
+     * @param rootPrefixes Prefixes of the paths below each root (its name and a '/'); empty when
+     *                     paths are not crawled, so the first component is the top level
+     */
+    ShardRouter(int shardCount, LuceneIndexProperties.Shards.Routing routing, List<String> rootPrefixes) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1");
+        }
+        this.shardCount = shardCount;
+        this.routing = routing;
+        this.rootPrefixes = List.copyOf(rootPrefixes);
+    }
+
+    int shardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Shard the path is indexed in.
+     */
+    int shardOf(String path) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        String key = routing == LuceneIndexProperties.Shards.Routing.TOP_LEVEL ? topLevel(path) : path;
+        BytesRef bytes = new BytesRef(key);
+        return Math.floorMod(StringHelper.murmurhash3_x86_32(bytes, 0), shardCount);
+    }
+
+    /**
+     * The only shard holding paths below the directory, or {@link #ALL_SHARDS} if they are spread out.
+     */
+    int shardOfDirectory(String directory) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        if (routing != LuceneIndexProperties.Shards.Routing.TOP_LEVEL || rootPrefixes.contains(directory + "/")) {
+            return ALL_SHARDS;
+        }
+        // Top-level routing keeps a directory and everything below it in its top-level component's shard
+        return shardOf(directory);
+    }
+
+    /**
+     * The root prefix and first component of the path, which every path below that component shares.
+     */
+    private String topLevel(String path) {
+        int start = 0;
+        for (String prefix : rootPrefixes) {
+            if (path.startsWith(prefix)) {
+                start = prefix.length();
+                break;
+            }
+        }
+        int slash = path.indexOf('/', start);
+        return slash >= 0 ? path.substring(0, slash) : path;
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.lucene.service;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Searchers leased from some or all shards for the duration of one request. Arrays are indexed by
+ * shard id and hold null for shards that were not leased, so merged hits keep the shard id as their
+ * {@link ScoreDoc#shardIndex}.
+ */
+final class ShardSearchers implements Closeable {
+
+    private static final TopDocs NO_HITS = new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+
+    private final List<IndexShard> shards;
+    private final IndexSearcher[] searchers;
+
+    private ShardSearchers(List<IndexShard> shards, IndexSearcher[] searchers) {
+        this.shards = shards;
+        this.searchers = searchers;
+    }
+
+    /**
+     * Lease the searcher of one shard, or of every shard.
+     *
+     * @param only Shard to search, or {@link ShardRouter#ALL_SHARDS}
+     */
+    static ShardSearchers acquire(List<IndexShard> shards, int only) throws IOException {
+        ShardSearchers leased = new ShardSearchers(shards, new IndexSearcher[shards.size()]);
+        try {
+            for (IndexShard shard : shards) {
+                if (only == ShardRouter.ALL_SHARDS || only == shard.id()) {
+                    leased.searchers[shard.id()] = shard.acquire();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            leased.close();
+            throw e;
+        }
+        return leased;
+    }
+
+    /**
+     * Leased searchers, in shard order.
+     */
+    List<IndexSearcher> searchers() {
+        List<IndexSearcher> leased = new ArrayList<>(searchers.length);
+        for (IndexSearcher searcher : searchers) {
+            if (searcher != null) {
+                leased.add(searcher);
+            }
+        }
+        return leased;
+    }
+
+    /**
+     * Identifies the combined state of the leased readers: reader versions only grow, so their
+     * sum changes whenever any shard exposes changes.
+     */
+    long version() {
+        long version = 0;
+        for (IndexSearcher searcher : searchers) {
+            if (searcher != null) {
+                version += ((DirectoryReader) searcher.getIndexReader()).getVersion();
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Live documents in the leased shards.
+     */
+    int numDocs() {
+        int numDocs = 0;
+        for (IndexSearcher searcher : searchers) {
+            if (searcher != null) {
+                numDocs += searcher.getIndexReader().numDocs();
+            }
+        }
+        return numDocs;
+    }
+
+    /**
+     * The same shards searched through per-request searchers that stop at the deadline. Closing
+     * this instance, not the bounded one, releases the shards.
+     */
+    ShardSearchers bounded(SearchDeadline deadline) throws IOException {
+        IndexSearcher[] bounded = new IndexSearcher[searchers.length];
+        for (int shard = 0; shard < searchers.length; shard++) {
+            if (searchers[shard] != null) {
+                bounded[shard] = deadline.bound(searchers[shard]);
+            }
+        }
+        return new ShardSearchers(List.of(), bounded);
+    }
+
+    /**
+     * Run a search on every leased shard in parallel.
+     *
+     * @return Results indexed by shard id, null for shards that were not leased
+     */
+    <T> List<T> fanOut(ShardExecutor executor, ShardSearch<T> search) throws IOException {
+        List<ShardExecutor.ShardTask<T>> tasks = new ArrayList<>();
+        for (int shard = 0; shard < searchers.length; shard++) {
+            IndexSearcher searcher = searchers[shard];
+            if (searcher != null) {
+                int id = shard;
+                tasks.add(() -> search.search(id, searcher));
+            }
+        }
+        List<T> results = executor.invokeAll(tasks);
+
+        List<T> byShard = new ArrayList<>(searchers.length);
+        int next = 0;
+        for (IndexSearcher searcher : searchers) {
+            byShard.add(searcher != null ? results.get(next++) : null);
+        }
+        return byShard;
+    }
+
+    /**
+     * Merge per-shard top hits into one ranking, tagging every hit with its shard id.
+     *
+     * @param sort      Order the shards collected their hits in, or null for relevance
+     * @param shardHits Hits by shard id, null for shards that were not searched or have no hits;
+     *                  {@link TopFieldDocs} if sorted
+     */
+    static TopDocs merge(Sort sort, int limit, List<? extends TopDocs> shardHits) {
+        TopDocs[] hits = sort != null ? new TopFieldDocs[shardHits.size()] : new TopDocs[shardHits.size()];
+        for (int shard = 0; shard < hits.length; shard++) {
+            TopDocs shardTop = shardHits.get(shard);
+            if (shardTop == null) {
+                shardTop = sort != null ? new TopFieldDocs(NO_HITS.totalHits, NO_HITS.scoreDocs, sort.getSort()) : NO_HITS;
+            }
+            hits[shard] = shardTop;
+            // The merge breaks ties by shard index, which it expects to be set
+            for (ScoreDoc hit : shardTop.scoreDocs) {
+                hit.shardIndex = shard;
+            }
+        }
+        return sort != null ? TopDocs.merge(sort, limit, (TopFieldDocs[]) hits) : TopDocs.merge(limit, hits);
+    }
+
+    /**
+     * Look up the paths of merged hits in the doc values of the shard each hit came from.
+     *
+     * @param hits Hits in rank order, with shard ids in {@link ScoreDoc#shardIndex}
+     * @return Paths in the same order as the hits
+     */
+    List<String> readPaths(ScoreDoc[] hits) throws IOException {
+        if (hits.length == 0) {
+            return new ArrayList<>();
+        }
+        int[] counts = new int[searchers.length];
+        for (ScoreDoc hit : hits) {
+            counts[hit.shardIndex]++;
+        }
+        // Usually all hits come from one shard; they are then read in one pass
+        for (int shard = 0; shard < searchers.length; shard++) {
+            if (counts[shard] == hits.length) {
+                return PathDocuments.readPaths(reader(shard), hits);
+            }
+        }
+
+        String[] paths = new String[hits.length];
+        for (int shard = 0; shard < searchers.length; shard++) {
+            if (counts[shard] == 0) {
+                continue;
+            }
+            ScoreDoc[] shardHits = new ScoreDoc[counts[shard]];
+            int[] positions = new int[counts[shard]];
+            int next = 0;
+            for (int i = 0; i < hits.length; i++) {
+                if (hits[i].shardIndex == shard) {
+                    shardHits[next] = hits[i];
+                    positions[next++] = i;
+                }
+            }
+            List<String> shardPaths = PathDocuments.readPaths(reader(shard), shardHits);
+            for (int i = 0; i < positions.length; i++) {
+                paths[positions[i]] = shardPaths.get(i);
+            }
+        }
+        return new ArrayList<>(Arrays.asList(paths));
+    }
+
+    private IndexReader reader(int shard) {
+        return searchers[shard].getIndexReader();
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (IndexShard shard : shards) {
+            IndexSearcher searcher = searchers[shard.id()];
+            if (searcher == null) {
+                continue;
+            }
+            searchers[shard.id()] = null;
+            try {
+                shard.release(searcher);
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Part of a search run against one shard's searcher
+     */
+    @FunctionalInterface
+    interface ShardSearch<T> {
+        T search(int shard, IndexSearcher searcher) throws IOException;
+    }
+}
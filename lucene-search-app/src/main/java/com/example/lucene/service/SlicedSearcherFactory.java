@@ -0,0 +1,61 @@
+package com.example.lucene.service;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherFactory;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates searchers that search the slices of one query in parallel.
+ *
+ * Segments are grouped into slices of at most {@code maxDocsPerSlice} documents and
+ * {@code maxSegmentsPerSlice} segments. All searchers share one bounded pool; when its queue
+ * is full, Lucene runs the remaining slices on the calling thread, so a burst of concurrent
+ * queries degrades to serial search instead of queueing without bound.
+ */
+class SlicedSearcherFactory extends SearcherFactory {
+
+    // Slice tasks that may wait per pool thread before callers run slices themselves
+    private static final int QUEUED_SLICES_PER_THREAD = 64;
+
+    private final ThreadPoolExecutor executor;
+    private final int maxDocsPerSlice;
+    private final int maxSegmentsPerSlice;
+
+    /**
+     * @param threads             Pool threads searching slices
+     * @param maxDocsPerSlice     Largest number of documents in one slice
+     * @param maxSegmentsPerSlice Largest number of segments in one slice
+     */
+    SlicedSearcherFactory(int threads, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+        this.maxDocsPerSlice = maxDocsPerSlice;
+        this.maxSegmentsPerSlice = maxSegmentsPerSlice;
+        AtomicInteger sliceThreads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUED_SLICES_PER_THREAD), runnable -> {
+            Thread thread = new Thread(runnable, "lucene-slice-" + sliceThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+        return new IndexSearcher(reader, executor) {
+            @Override
+            protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+                return slices(leaves, maxDocsPerSlice, maxSegmentsPerSlice);
+            }
+        };
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
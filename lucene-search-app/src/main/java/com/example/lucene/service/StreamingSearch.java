@@ -0,0 +1,24 @@
+package com.example.lucene.service;
+
+import java.io.IOException;
+
+/**
+ * A search prepared by {@link LuceneService#streamSearch} whose hits are written out as they are
+ * collected, so memory use does not depend on how many paths match.
+ */
+@FunctionalInterface
+public interface StreamingSearch {
+
+    /**
+     * Run the search and hand every matching path to the consumer, in index order rather than by score.
+     * An exception thrown by the consumer, such as a closed client connection, stops the search.
+     *
+     * @return Number of paths written
+     */
+    long writeTo(PathConsumer consumer) throws IOException;
+
+    @FunctionalInterface
+    interface PathConsumer {
+        void accept(String path) throws IOException;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.lucene.service;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.ScorerSupplier;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.DocIdSetBuilder;
+
+import java.io.IOException;
+
+/**
+ * Matches every path below a directory as one range of path ordinals.
+ * <p>
+ * The sorted doc values of a path field number each segment's paths in byte order, which is a
+ * depth-first order of the tree: the paths below {@code dir} are exactly those from {@code dir/}
+ * up to, not including, {@code dir0} ('0' follows '/'). Two lookups in the doc values dictionary
+ * give that ordinal range, and with it the exact size of the subtree in the segment. Small
+ * subtrees are read from the postings of their path terms, so they can lead a conjunction; large
+ * ones are checked one candidate at a time against the ordinal range, which is far cheaper than
+ * enumerating their terms. Unlike ordinals assigned at index time, these stay valid as paths are
+ * added and removed.
+ */
+final class SubtreeQuery extends Query {
+
+    // Reading one path term and its posting costs roughly this many ordinal checks
+    private static final int TERM_COST = 64;
+
+    private final String field;
+    private final BytesRef lower;
+    private final BytesRef upper;
+
+    /**
+     * @param field     Field indexed both as a term and as sorted doc values
+     * @param directory Directory path without a trailing '/'
+     */
+    SubtreeQuery(String field, String directory) {
+        this.field = field;
+        this.lower = new BytesRef(directory + "/");
+        this.upper = new BytesRef(directory + (char) ('/' + 1));
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) {
+        return new ConstantScoreWeight(this, boost) {
+            @Override
+            public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+                LeafReader reader = context.reader();
+                SortedDocValues values = reader.getSortedDocValues(field);
+                if (values == null) {
+                    return null;
+                }
+                int minOrd = ceilingOrd(values, lower);
+                int maxOrd = ceilingOrd(values, upper);
+                if (minOrd >= maxOrd) {
+                    return null;
+                }
+                Weight weight = this;
+                return new ScorerSupplier() {
+                    @Override
+                    public Scorer get(long leadCost) throws IOException {
+                        // Checking ordinals visits the candidates of a cheaper clause that leads; if
+                        // this clause is the cheapest, the leadCost is its own and up to every
+                        // document may need a check
+                        long checks = leadCost < cost() ? leadCost : reader.maxDoc();
+                        if (cost() * TERM_COST <= checks) {
+                            return new ConstantScoreScorer(weight, score(), scoreMode, postings(reader));
+                        }
+                        TwoPhaseIterator ordinals = new TwoPhaseIterator(values) {
+                            @Override
+                            public boolean matches() throws IOException {
+                                int ord = values.ordValue();
+                                return ord >= minOrd && ord < maxOrd;
+                            }
+
+                            @Override
+                            public float matchCost() {
+                                return 2;
+                            }
+                        };
+                        return new ConstantScoreScorer(weight, score(), scoreMode, ordinals);
+                    }
+
+                    @Override
+                    public long cost() {
+                        // Paths are unique, so there is one document per ordinal (deleted ones included)
+                        return maxOrd - minOrd;
+                    }
+                };
+            }
+
+            @Override
+            public Scorer scorer(LeafReaderContext context) throws IOException {
+                ScorerSupplier supplier = scorerSupplier(context);
+                return supplier != null ? supplier.get(Long.MAX_VALUE) : null;
+            }
+
+            @Override
+            public boolean isCacheable(LeafReaderContext context) {
+                return DocValues.isCacheable(context, field);
+            }
+        };
+    }
+
+    /**
+     * Ordinal of the smallest path that is not below the given one.
+     */
+    private static int ceilingOrd(SortedDocValues values, BytesRef path) throws IOException {
+        int ord = values.lookupTerm(path);
+        return ord >= 0 ? ord : -1 - ord;
+    }
+
+    private DocIdSetIterator postings(LeafReader reader) throws IOException {
+        Terms terms = reader.terms(field);
+        if (terms == null) {
+            return DocIdSetIterator.empty();
+        }
+        DocIdSetBuilder builder = new DocIdSetBuilder(reader.maxDoc(), terms);
+        TermsEnum termsEnum = terms.iterator();
+        if (termsEnum.seekCeil(lower) != TermsEnum.SeekStatus.END) {
+            PostingsEnum postings = null;
+            do {
+                if (termsEnum.term().compareTo(upper) >= 0) {
+                    break;
+                }
+                postings = termsEnum.postings(postings, PostingsEnum.NONE);
+                builder.add(postings);
+            } while (termsEnum.next() != null);
+        }
+        DocIdSet docs = builder.build();
+        DocIdSetIterator iterator = docs.iterator();
+        return iterator != null ? iterator : DocIdSetIterator.empty();
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        if (visitor.acceptField(field)) {
+            visitor.visitLeaf(this);
+        }
+    }
+
+    @Override
+    public String toString(String defaultField) {
+        return (field.equals(defaultField) ? "" : field + ":") + lower.utf8ToString() + "**";
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return sameClassAs(other) && field.equals(((SubtreeQuery) other).field)
+                && lower.equals(((SubtreeQuery) other).lower);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * classHash() + field.hashCode()) + lower.hashCode();
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.lucene.suggest;
+
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.fst.WFSTCompletionLookup;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Prefix completion for the search box: completes a typed prefix to file names and directory
+ * names that occur in the index, most frequent first.
+ *
+ * Every distinct lowercase path component is a key of a weighted FST ({@link WFSTCompletionLookup}),
+ * weighted by the number of paths that contain it. A lookup walks the FST along the prefix and
+ * then collects the top weighted completions below it, so its cost depends on the prefix and the
+ * number of suggestions, not on the number of paths.
+ *
+ * Immutable once built and safe for concurrent lookups; index changes are picked up by building
+ * a new instance with a {@link Builder}, which can be kept alongside the index and updated with
+ * every added and removed path.
+ */
+public final class PathSuggester {
+
+    private static final PathSuggester EMPTY = new PathSuggester(null);
+
+    private final WFSTCompletionLookup lookup;
+
+    private PathSuggester(WFSTCompletionLookup lookup) {
+        this.lookup = lookup;
+    }
+
+    /**
+     * Suggester that never suggests anything, for before the first build.
+     */
+    public static PathSuggester empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Complete a prefix to path components, case-insensitively.
+     *
+     * @param prefix Typed prefix of a file or directory name
+     * @param count  Maximum number of suggestions
+     * @return Lowercase components starting with the prefix; an exact match first, then by frequency
+     */
+    public List<String> suggest(String prefix, int count) throws IOException {
+        if (lookup == null || prefix.isEmpty()) {
+            return List.of();
+        }
+        List<Lookup.LookupResult> results = lookup.lookup(prefix.toLowerCase(Locale.ROOT), false, count);
+        List<String> suggestions = new ArrayList<>(results.size());
+        for (Lookup.LookupResult result : results) {
+            suggestions.add(result.key.toString());
+        }
+        return suggestions;
+    }
+
+    /**
+     * Number of distinct components that can be suggested.
+     */
+    public long size() {
+        return lookup == null ? 0 : lookup.getCount();
+    }
+
+    /**
+     * Heap used by the FST.
+     */
+    public long ramBytesUsed() {
+        return lookup == null ? 0 : lookup.ramBytesUsed();
+    }
+
+    /**
+     * Collects path components, then builds the suggester over them. Paths can be added and removed
+     * as the index changes and a suggester built at any time, so a rebuild costs a sort of the
+     * distinct components rather than a pass over every path.
+     *
+     * Safe for concurrent use; a build works on a copy of the counts taken under the lock.
+     */
+    public static final class Builder {
+        // Number of paths each lowercase component occurs in
+        private final Map<String, Integer> counts = new HashMap<>();
+        // Number of add and remove calls so far, so callers can tell whether a rebuild is needed
+        private long changes;
+
+        /**
+         * Add the components of a '/' separated path.
+         */
+        public synchronized Builder add(String path) {
+            forEachComponent(path, component -> counts.merge(component, 1, Integer::sum));
+            changes++;
+            return this;
+        }
+
+        /**
+         * Remove the components of a path added before.
+         */
+        public synchronized Builder remove(String path) {
+            // Counts that drop to zero are dropped, so removed components are no longer suggested
+            forEachComponent(path, component ->
+                    counts.computeIfPresent(component, (key, count) -> count > 1 ? count - 1 : null));
+            changes++;
+            return this;
+        }
+
+        /**
+         * Number of adds and removes so far; a suggester built after reading it reflects at least those.
+         */
+        public synchronized long changes() {
+            return changes;
+        }
+
+        public PathSuggester build() throws IOException {
+            Map<String, Integer> snapshot;
+            synchronized (this) {
+                if (counts.isEmpty()) {
+                    return EMPTY;
+                }
+                snapshot = new HashMap<>(counts);
+            }
+            // Entries are sorted offline by the lookup; the temporary files never leave the heap
+            try (Directory tempDir = new ByteBuffersDirectory()) {
+                WFSTCompletionLookup lookup = new WFSTCompletionLookup(tempDir, "suggest", true);
+                lookup.build(new ComponentIterator(snapshot));
+                return new PathSuggester(lookup);
+            }
+        }
+
+        private static void forEachComponent(String path, Consumer<String> action) {
+            String previous = null;
+            for (String component : path.toLowerCase(Locale.ROOT).split("/")) {
+                // Repeats within one path (a/x/x) count once; they are almost always adjacent
+                if (!component.isEmpty() && !component.equals(previous)) {
+                    action.accept(component);
+                }
+                previous = component;
+            }
+        }
+    }
+
+    /**
+     * Feeds the component counts to the lookup builder.
+     */
+    private static final class ComponentIterator implements InputIterator {
+        private final Iterator<Map.Entry<String, Integer>> entries;
+        private long weight;
+
+        ComponentIterator(Map<String, Integer> counts) {
+            this.entries = counts.entrySet().iterator();
+        }
+
+        @Override
+        public BytesRef next() {
+            if (!entries.hasNext()) {
+                return null;
+            }
+            Map.Entry<String, Integer> entry = entries.next();
+            weight = entry.getValue();
+            return new BytesRef(entry.getKey());
+        }
+
+        @Override
+        public long weight() {
+            return weight;
+        }
+
+        @Override
+        public BytesRef payload() {
+            return null;
+        }
+
+        @Override
+        public boolean hasPayloads() {
+            return false;
+        }
+
+        @Override
+        public Set<BytesRef> contexts() {
+            return null;
+        }
+
+        @Override
+        public boolean hasContexts() {
+            return false;
+        }
+    }
+}
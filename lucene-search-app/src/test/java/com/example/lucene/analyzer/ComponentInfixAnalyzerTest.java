@@ -0,0 +1,46 @@
+package com.example.lucene.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ComponentInfixAnalyzerTest {
+
+    /**
+     * Test that grams stay inside components, are lowercased, and sit at the position of their offset.
+     */
+    @Test
+    public void testGramsArePositionedAtTheirOffset() throws IOException {
+        try (Analyzer analyzer = new ComponentInfixAnalyzer(3)) {
+            // "io" is shorter than a gram; "ore" and "res" are not adjacent, so "ores" cannot match
+            assertEquals(List.of("cor@0", "ore@1", "res@5", "esb@6"), analyzeText(analyzer, "core/resB/io"));
+        }
+    }
+
+    /**
+     * Helper method to get all tokens of an analyzer for a given text, with their positions
+     */
+    private List<String> analyzeText(Analyzer analyzer, String text) throws IOException {
+        List<String> result = new ArrayList<>();
+        try (TokenStream tokenStream = analyzer.tokenStream("infix", text)) {
+            CharTermAttribute charTermAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+            PositionIncrementAttribute increment = tokenStream.addAttribute(PositionIncrementAttribute.class);
+            int position = -1;
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                position += increment.getPositionIncrement();
+                result.add(charTermAttribute + "@" + position);
+            }
+            tokenStream.end();
+        }
+        return result;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.lucene.analyzer;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.junit.jupiter.api.AfterEach;
@@ -110,6 +111,54 @@ public class ConcatenationAnalyzerTest {
         assertTrue(tokens.isEmpty(), "The analyzer should produce no tokens when all words are stop words");
     }
     
+    /**
+     * Test that long concatenations are truncated to the maximum length, without splitting a surrogate pair
+     */
+    @Test
+    public void testTruncatesLongConcatenation() throws IOException {
+        Analyzer truncating = new ConcatenationAnalyzer(CharArraySet.EMPTY_SET, " ", 10,
+                ConcatenationTokenFilter.OverflowPolicy.TRUNCATE);
+        try {
+            assertEquals(List.of("alpha beta"), analyzeText(truncating, "alpha beta gamma"));
+            assertEquals(List.of("short"), analyzeText(truncating, "short"), "Short input should be unchanged");
+            // The cut would fall between the two chars of U+1F600
+            assertEquals(List.of("abcdefghi"), analyzeText(truncating, "abcdefghi\uD83D\uDE00"));
+        } finally {
+            truncating.close();
+        }
+    }
+    
+    /**
+     * Test that the hash policy keeps long concatenations with a common prefix distinct
+     */
+    @Test
+    public void testHashesLongConcatenation() throws IOException {
+        Analyzer hashing = new ConcatenationAnalyzer(CharArraySet.EMPTY_SET, " ", 24,
+                ConcatenationTokenFilter.OverflowPolicy.HASH);
+        try {
+            String first = analyzeText(hashing, "alpha beta gamma delta epsilon").get(0);
+            String second = analyzeText(hashing, "alpha beta gamma delta zeta eta").get(0);
+            
+            assertEquals(24, first.length(), "Hashed tokens should use the whole maximum length");
+            assertTrue(first.matches("alpha b#[0-9a-f]{16}"), first);
+            assertFalse(first.equals(second), "Different long texts should get different tokens");
+            assertEquals(first, analyzeText(hashing, "alpha beta gamma delta epsilon").get(0), "Hashing should be stable");
+            assertEquals(List.of("alpha beta"), analyzeText(hashing, "alpha beta"), "Short input should not be hashed");
+        } finally {
+            hashing.close();
+        }
+    }
+    
+    /**
+     * Test that the reused buffer does not leak a longer document into a shorter one
+     */
+    @Test
+    public void testBufferReuseAcrossDocuments() throws IOException {
+        assertEquals(List.of("simple test filter longer document"),
+                analyzeText(analyzer, "simple test filter longer document"));
+        assertEquals(List.of("short"), analyzeText(analyzer, "short"));
+    }
+    
     /**
      * Helper method to get all tokens from an analyzer for a given text
      */
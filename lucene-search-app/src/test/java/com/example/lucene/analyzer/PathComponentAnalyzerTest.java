@@ -0,0 +1,77 @@
+package com.example.lucene.analyzer;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PathComponentAnalyzerTest {
+
+    /**
+     * Test that grams are built per component and never span a path separator.
+     */
+    @Test
+    public void testGramsDoNotSpanSeparators() throws IOException {
+        try (Analyzer analyzer = new PathComponentAnalyzer(2, 10, true)) {
+            List<String> tokens = analyzeText(analyzer, "lucene/queryparser/plus.gif");
+
+            assertTrue(tokens.contains("qu"), "Component prefixes should be indexed");
+            assertTrue(tokens.contains("queryparse"), "Prefixes up to maxGram should be indexed");
+            assertTrue(tokens.contains("queryparser"), "Whole components should be kept");
+            assertTrue(tokens.contains("gif"), "Extensions should be split off");
+            assertFalse(tokens.contains("e/q"), "Grams must not span '/'");
+            assertFalse(tokens.contains("ue"), "Only prefixes, not infixes, should be indexed");
+        }
+    }
+
+    /**
+     * Test that camelCase and snake_case words are split and lowercased.
+     */
+    @Test
+    public void testCamelCaseAndSnakeCaseAreSplit() throws IOException {
+        try (Analyzer analyzer = new PathComponentAnalyzer(2, 10, true)) {
+            List<String> tokens = analyzeText(analyzer, "src/IndexWriter_config.java");
+
+            assertTrue(tokens.contains("index"), "camelCase words should be indexed");
+            assertTrue(tokens.contains("writer"), "camelCase words should be indexed");
+            assertTrue(tokens.contains("config"), "snake_case words should be indexed");
+            assertTrue(tokens.contains("indexwriter_config.java"), "The lowercased component should be kept");
+        }
+    }
+
+    /**
+     * Test that the query-time chain emits one truncated term per word.
+     */
+    @Test
+    public void testQueryAnalysisTruncatesToMaxGram() throws IOException {
+        try (Analyzer analyzer = new PathComponentAnalyzer(2, 10, false)) {
+            assertEquals(List.of("queryparse", "plus", "icon", "gif"), analyzeText(analyzer, "queryparser/PlusIcon.gif"));
+        }
+    }
+
+    /**
+     * Helper method to get all tokens from an analyzer for a given text
+     */
+    private List<String> analyzeText(Analyzer analyzer, String text) throws IOException {
+        List<String> result = new ArrayList<>();
+        TokenStream tokenStream = analyzer.tokenStream("content", text);
+        CharTermAttribute charTermAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+
+        tokenStream.reset();
+        while (tokenStream.incrementToken()) {
+            result.add(charTermAttribute.toString());
+        }
+        tokenStream.end();
+        tokenStream.close();
+
+        return result;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.lucene.ingest;
+
+import com.example.lucene.service.PathDocuments;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class IndexingPipelineTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test that every regular file under the root is indexed exactly once with a root-relative path.
+     */
+    @Test
+    public void testCrawlsAndIndexesEveryFile() throws Exception {
+        Path root = Files.createDirectories(tempDir.resolve("repo"));
+        int expected = 0;
+        for (int dir = 0; dir < 20; dir++) {
+            Path directory = Files.createDirectories(root.resolve("module" + dir).resolve("src"));
+            for (int file = 0; file < 15; file++) {
+                Files.createFile(directory.resolve("File" + file + ".java"));
+                expected++;
+            }
+        }
+
+        try (Directory directory = new ByteBuffersDirectory();
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            // A tiny batch size and queue exercise the backpressure path
+            IngestionStats stats = new IndexingPipeline(writer, 4, 3, 7, 2).run(List.of(root));
+            writer.commit();
+
+            assertEquals(expected, stats.getPaths(), "Every file should be reported");
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                assertEquals(expected, reader.numDocs(), "Every file should be indexed once");
+                IndexSearcher searcher = new IndexSearcher(reader);
+                Term path = new Term(PathDocuments.PATH_FIELD, "repo/module3/src/File7.java");
+                assertEquals(1, searcher.count(new TermQuery(path)), "Paths should be relative to the root's parent");
+            }
+        }
+    }
+}
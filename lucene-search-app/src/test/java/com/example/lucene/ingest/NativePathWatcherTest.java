@@ -0,0 +1,59 @@
+package com.example.lucene.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NativePathWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test that a directory renamed while watched keeps reporting changes under its new name.
+     */
+    @Test
+    public void testRenamedDirectoryKeepsBeingWatched() throws Exception {
+        Path root = Files.createDirectories(tempDir.resolve("repo"));
+        Files.createDirectories(root.resolve("old"));
+
+        Set<String> created = ConcurrentHashMap.newKeySet();
+        NativePathWatcher watcher = new NativePathWatcher(List.of(root), new PathChangeListener() {
+            @Override
+            public void pathCreated(String path) {
+                created.add(path);
+            }
+
+            @Override
+            public void pathDeleted(String path) {
+            }
+        });
+        watcher.start();
+        try {
+            Path renamed = Files.move(root.resolve("old"), root.resolve("new"));
+            Files.createFile(renamed.resolve("moved.txt"));
+            await(created, "repo/new/moved.txt");
+
+            // A directory created inside the renamed one must be resolved under its new path
+            Files.createFile(Files.createDirectories(renamed.resolve("sub")).resolve("App.java"));
+            await(created, "repo/new/sub/App.java");
+        } finally {
+            watcher.close();
+        }
+    }
+
+    private static void await(Set<String> created, String path) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!created.contains(path) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(created.contains(path), path + " should be reported, got " + created);
+    }
+}
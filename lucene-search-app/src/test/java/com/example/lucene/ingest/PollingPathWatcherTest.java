@@ -0,0 +1,65 @@
+package com.example.lucene.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PollingPathWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test that a poll reports created files, renamed files and deleted directories.
+     */
+    @Test
+    public void testPollReportsChangesSinceStart() throws Exception {
+        Path root = Files.createDirectories(tempDir.resolve("repo"));
+        Path docs = Files.createDirectories(root.resolve("docs"));
+        Path img = Files.createDirectories(root.resolve("img"));
+        Files.createFile(docs.resolve("index.html"));
+        Files.createFile(img.resolve("plus.gif"));
+
+        List<String> events = new ArrayList<>();
+        PollingPathWatcher watcher = new PollingPathWatcher(List.of(root), new PathChangeListener() {
+            @Override
+            public void pathCreated(String path) {
+                events.add("+" + path);
+            }
+
+            @Override
+            public void pathDeleted(String path) {
+                events.add("-" + path);
+            }
+        }, Duration.ofHours(1));
+        watcher.start();
+        try {
+            Files.move(docs.resolve("index.html"), docs.resolve("readme.html"));
+            Files.delete(img.resolve("plus.gif"));
+            Files.delete(img);
+            Files.createDirectories(root.resolve("src/main")).resolve("App.java").toFile().createNewFile();
+
+            // Directory mtimes can have coarse granularity, so make the changes visible explicitly
+            FileTime later = FileTime.from(Instant.now().plusSeconds(5));
+            Files.setLastModifiedTime(root, later);
+            Files.setLastModifiedTime(docs, later);
+
+            watcher.poll();
+        } finally {
+            watcher.close();
+        }
+
+        events.sort(String::compareTo);
+        assertEquals(List.of("+repo/docs/readme.html", "+repo/src/main/App.java",
+                "-repo/docs/index.html", "-repo/img"), events);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.lucene.matcher;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PathSubsequenceMatcherTest {
+
+    private PathSubsequenceMatcher matcher;
+
+    @BeforeEach
+    public void setUp() {
+        matcher = new PathSubsequenceMatcher(1000);
+        matcher.add("lucene/queryparser/docs/xml/img/plus.gif");
+        matcher.add("lucene/queryparser/docs/xml/img/join.gif");
+        matcher.add("lucene/queryparser/docs/xml/img/minusbottom.gif");
+        matcher.add("lucene/core/src/java/org/apache/lucene/index/IndexWriter.java");
+        matcher.add("lucene/core/src/java/org/apache/lucene/index/MultiReader.java");
+    }
+
+    /**
+     * Test that abbreviations match paths containing their characters in order.
+     */
+    @Test
+    public void testAbbreviationMatches() {
+        assertEquals(List.of("lucene/queryparser/docs/xml/img/plus.gif"), matcher.search("lqdocspg", 10));
+        assertEquals(3, matcher.search("lqd///gif", 10).size(), "Query slashes should match component boundaries");
+        assertTrue(matcher.search("lqdxyz", 10).isEmpty(), "Characters out of order should not match");
+    }
+
+    /**
+     * Test that matching is case-insensitive and prefers component-initial hits.
+     */
+    @Test
+    public void testRanksWordStartsFirst() {
+        // "iw" hits the starts of Index and Writer, but only inner letters of MultiReader's path
+        assertEquals("lucene/core/src/java/org/apache/lucene/index/IndexWriter.java", matcher.search("IW", 10).get(0));
+        assertEquals("lucene/core/src/java/org/apache/lucene/index/MultiReader.java", matcher.search("mr", 10).get(0));
+    }
+
+    /**
+     * Test that a search stopped by the candidate cap is reported as incomplete.
+     */
+    @Test
+    public void testCandidateCapMarksMatchesIncomplete() {
+        PathSubsequenceMatcher capped = new PathSubsequenceMatcher(2);
+        capped.add("lucene/queryparser/docs/xml/img/plus.gif");
+        capped.add("lucene/queryparser/docs/xml/img/join.gif");
+        capped.add("lucene/queryparser/docs/xml/img/minusbottom.gif");
+
+        PathSubsequenceMatcher.Matches matches = capped.match("gif", 10);
+        assertEquals(2, matches.getPaths().size());
+        assertFalse(matches.isComplete(), "A third match was never ranked");
+        assertTrue(capped.match("lqdocspg", 10).isComplete());
+    }
+
+    /**
+     * Test that removing a directory removes every path below it.
+     */
+    @Test
+    public void testRemoveDirectory() {
+        assertEquals(Set.of("lucene/queryparser/docs/xml/img/plus.gif", "lucene/queryparser/docs/xml/img/join.gif",
+                        "lucene/queryparser/docs/xml/img/minusbottom.gif"),
+                new HashSet<>(matcher.remove("lucene/queryparser")));
+
+        assertEquals(2, matcher.size());
+        assertTrue(matcher.search("gif", 10).isEmpty(), "Removed paths should no longer match");
+    }
+
+    /**
+     * Test that removing the last path of a directory drops the directory, and that the remaining
+     * paths still match once their sibling branches are gone.
+     */
+    @Test
+    public void testRemovePrunesEmptyDirectories() {
+        int nodes = matcher.nodeCount();
+        matcher.remove("lucene/queryparser/docs/xml/img/plus.gif");
+        assertEquals(nodes - 1, matcher.nodeCount(), "Only the file node should go while img has other files");
+
+        matcher.remove("lucene/queryparser/docs/xml/img/join.gif");
+        matcher.remove("lucene/queryparser/docs/xml/img/minusbottom.gif");
+        // queryparser, docs, xml and img are left without paths
+        assertEquals(nodes - 7, matcher.nodeCount());
+        assertTrue(matcher.search("lqd", 10).isEmpty());
+        assertEquals(2, matcher.search("lcsj", 10).size());
+
+        matcher.add("lucene/queryparser/docs/xml/img/plus.gif");
+        assertEquals(List.of("lucene/queryparser/docs/xml/img/plus.gif"), matcher.search("lqdocspg", 10));
+    }
+}
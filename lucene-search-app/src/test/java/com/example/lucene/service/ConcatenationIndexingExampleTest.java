@@ -0,0 +1,108 @@
+package com.example.lucene.service;
+
+import com.example.lucene.analyzer.ConcatenationAnalyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcatenationIndexingExampleTest {
+
+    private static final String FIRST_DOCUMENT =
+            "Introduction to Lucene Lucene is a powerful search library for Java applications.";
+
+    /**
+     * Test that the fingerprint is the standard MurmurHash3 x64 128-bit hash of the UTF-8 text.
+     */
+    @Test
+    public void testFingerprintMatchesMurmur3() {
+        assertEquals("00000000000000000000000000000000", ContentFingerprint.of("").toString());
+        assertEquals("6c1b07bc7bbc4be347939ac4a93c437a",
+                ContentFingerprint.of("The quick brown fox jumps over the lazy dog").toString());
+        assertEquals(ContentFingerprint.of("café"), ContentFingerprint.of("café"));
+        assertNotEquals(ContentFingerprint.of("cafe"), ContentFingerprint.of("café"));
+    }
+
+    /**
+     * Test that hashing a text in pieces, split anywhere including inside a surrogate pair, gives the
+     * fingerprint of the whole text.
+     */
+    @Test
+    public void testHasherMatchesWholeText() {
+        String text = "Ünïcode \uD83D\uDE00 and a lone \uD800 surrogate, " + "x".repeat(37);
+        for (int split = 0; split <= text.length(); split++) {
+            ContentFingerprint.Hasher hasher = new ContentFingerprint.Hasher();
+            hasher.append(text.substring(0, split));
+            hasher.append(text.toCharArray(), split, text.length() - split);
+            assertEquals(ContentFingerprint.of(text), hasher.finish(), "split at " + split);
+        }
+    }
+
+    /**
+     * Test that a text finds the document with the same content, ignoring stop words and whitespace.
+     */
+    @Test
+    public void testFingerprintLookupFindsSameContent() throws Exception {
+        ConcatenationIndexingExample example = new ConcatenationIndexingExample(ConcatenationIndexingExample.Mode.FINGERPRINT);
+        example.createSampleIndex();
+
+        List<ConcatenationIndexingExample.DocumentResult> results = example.searchConcatenated(FIRST_DOCUMENT);
+        assertEquals(1, results.size());
+        assertEquals("1", results.get(0).getId());
+        assertEquals(example.fingerprint(FIRST_DOCUMENT).toString(), results.get(0).getConcatenated());
+
+        // Different stop words and spacing concatenate to the same text
+        String nearDuplicate = "Introduction  Lucene\tLucene is the powerful search library for Java applications.";
+        assertEquals(results.get(0).getId(), example.searchConcatenated(nearDuplicate).get(0).getId());
+
+        // Any other word changes the fingerprint
+        assertTrue(example.searchConcatenated(FIRST_DOCUMENT.replace("Java", "Kotlin")).isEmpty());
+        assertTrue(example.searchConcatenated("Lucene").isEmpty());
+    }
+
+    /**
+     * Test that long texts keep distinct fingerprints even when they share a long prefix.
+     */
+    @Test
+    public void testFingerprintCoversWholeText() throws Exception {
+        try (ConcatenationIndexingExample example = new ConcatenationIndexingExample(ConcatenationIndexingExample.Mode.FINGERPRINT)) {
+            String prefix = "word ".repeat(10_000);
+            assertNotEquals(example.fingerprint(prefix + "one"), example.fingerprint(prefix + "two"));
+            assertNull(example.fingerprint("the and of"));
+        }
+    }
+
+    /**
+     * Test that the fingerprint is the hash of exactly what ConcatenationAnalyzer concatenates.
+     */
+    @Test
+    public void testFingerprintHashesConcatenation() throws Exception {
+        try (ConcatenationIndexingExample example = new ConcatenationIndexingExample(ConcatenationIndexingExample.Mode.FINGERPRINT);
+             ConcatenationAnalyzer analyzer = new ConcatenationAnalyzer();
+             TokenStream tokenStream = analyzer.tokenStream("concatenated", FIRST_DOCUMENT)) {
+            CharTermAttribute termAtt = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            assertTrue(tokenStream.incrementToken());
+            assertEquals(ContentFingerprint.of(termAtt), example.fingerprint(FIRST_DOCUMENT));
+            tokenStream.end();
+        }
+    }
+
+    /**
+     * Test that fingerprint lookups are refused by an index built without fingerprints.
+     */
+    @Test
+    public void testFindByFingerprintNeedsFingerprintMode() throws Exception {
+        ConcatenationIndexingExample example = new ConcatenationIndexingExample();
+        example.createSampleIndex();
+        assertThrows(IllegalStateException.class,
+                () -> example.findByFingerprint(example.fingerprint(FIRST_DOCUMENT)));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.lucene.service;
+
+import com.example.lucene.config.LuceneIndexProperties;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+public class FuzzyQueryPlannerTest {
+
+    /**
+     * Test that repeated components become a single clause per field.
+     */
+    @Test
+    public void testRepeatedComponentsAreDeduplicated() {
+        FuzzyQueryPlanner planner = new FuzzyQueryPlanner(LuceneIndexProperties.Analysis.PATH, 200);
+
+        // Whole query, file name "img", and "img"/"xml" against both fields; "img" as file name only once
+        assertEquals(List.of("content:img/xml/img", "filename:img", "content:img", "content:xml", "filename:xml"),
+                clauseTerms(planner.plan("img/xml/img")));
+    }
+
+    /**
+     * Test that terms longer than any indexed n-gram plus the allowed edits are skipped.
+     */
+    @Test
+    public void testUnmatchableTermsAreSkipped() {
+        FuzzyQueryPlanner planner = new FuzzyQueryPlanner(LuceneIndexProperties.Analysis.NGRAM, 200);
+
+        // The 20 character query cannot come within two edits of a 10-gram; "queryparser" (11) can
+        assertEquals(List.of("filename:plus.gif", "content:queryparser", "filename:queryparser", "content:plus.gif"),
+                clauseTerms(planner.plan("queryparser/plus.gif")));
+        assertEquals(5, clauseTerms(new FuzzyQueryPlanner(LuceneIndexProperties.Analysis.PATH, 200)
+                .plan("queryparser/plus.gif")).size());
+    }
+
+    /**
+     * Test that edit distance and prefix length grow with term length.
+     */
+    @Test
+    public void testEditsDependOnTermLength() {
+        BooleanQuery query = (BooleanQuery) new FuzzyQueryPlanner(LuceneIndexProperties.Analysis.PATH, 200)
+                .plan("ab/docs/plusicon");
+
+        assertInstanceOf(TermQuery.class, clause(query, "content:ab"), "Two characters should match exactly");
+        FuzzyQuery docs = (FuzzyQuery) clause(query, "content:docs");
+        assertEquals(1, docs.getMaxEdits());
+        assertEquals(0, docs.getPrefixLength());
+        FuzzyQuery plusIcon = (FuzzyQuery) clause(query, "filename:plusicon");
+        assertEquals(2, plusIcon.getMaxEdits());
+        assertEquals(1, plusIcon.getPrefixLength());
+    }
+
+    /**
+     * Test that an edit cap lowers the edits of long terms and leaves short ones alone.
+     */
+    @Test
+    public void testEditCapLimitsEveryClause() {
+        BooleanQuery query = new FuzzyQueryPlanner(LuceneIndexProperties.Analysis.PATH, 200).plan("ab/docs/plusicon", 1);
+
+        assertInstanceOf(TermQuery.class, clause(query, "content:ab"));
+        assertEquals(1, ((FuzzyQuery) clause(query, "content:docs")).getMaxEdits());
+        FuzzyQuery plusIcon = (FuzzyQuery) clause(query, "filename:plusicon");
+        assertEquals(1, plusIcon.getMaxEdits());
+        assertEquals(0, plusIcon.getPrefixLength(), "Only two-edit clauses need a prefix");
+    }
+
+    private static List<String> clauseTerms(Query query) {
+        List<String> terms = new ArrayList<>();
+        for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+            terms.add(term(clause.getQuery()));
+        }
+        return terms;
+    }
+
+    private static Query clause(BooleanQuery query, String term) {
+        for (BooleanClause clause : query.clauses()) {
+            if (term(clause.getQuery()).equals(term)) {
+                return clause.getQuery();
+            }
+        }
+        throw new AssertionError("No clause for " + term);
+    }
+
+    private static String term(Query query) {
+        if (query instanceof FuzzyQuery) {
+            return ((FuzzyQuery) query).getTerm().toString();
+        }
+        return ((TermQuery) query).getTerm().toString();
+    }
+}
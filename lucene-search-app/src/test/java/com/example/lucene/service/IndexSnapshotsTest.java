@@ -0,0 +1,47 @@
+package com.example.lucene.service;
+
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class IndexSnapshotsTest {
+
+    /**
+     * Test that only Lucene index file names are imported, so an archive cannot name other files.
+     */
+    @Test
+    public void testOnlyIndexFilesAreImported() throws Exception {
+        for (String fileName : List.of("..", ".", "..\\segments_1", "notes.txt", "_0.cfs\\..", "segments_1.bak")) {
+            IndexShard shard = new IndexShard(0, "test", new ByteBuffersDirectory());
+            assertThrows(IOException.class, () -> IndexSnapshots.importInto(List.of(shard),
+                    new ByteArrayInputStream(archive("shard-0/" + fileName))), fileName);
+            assertArrayEquals(new String[0], shard.directory().listAll(), fileName + " should not be written");
+        }
+
+        IndexShard shard = new IndexShard(0, "test", new ByteBuffersDirectory());
+        assertEquals(3, IndexSnapshots.importInto(List.of(shard),
+                new ByteArrayInputStream(archive("shard-0/_0.cfs", "shard-0/_0_Lucene90_0.dvd", "shard-0/segments_2"))));
+    }
+
+    private static byte[] archive(String... names) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (String name : names) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(1);
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,743 @@
+package com.example.lucene.service;
+
+import com.example.lucene.config.LuceneIndexProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LuceneServiceTest {
+
+    @TempDir
+    Path indexPath;
+
+    /**
+     * Test that a restarted service reuses the committed on-disk index instead of rebuilding it.
+     */
+    @Test
+    public void testMmapIndexIsReusedAcrossRestarts() throws Exception {
+        LuceneService first = startService();
+        List<String> expected = first.search("plus.gif");
+        first.close();
+        long generation = lastCommitGeneration();
+
+        LuceneService second = startService();
+        try {
+            // No new commit means the index was opened, not rebuilt
+            assertEquals(generation, lastCommitGeneration(), "The existing commit should be reused");
+            assertEquals(expected, second.search("plus.gif"), "Results should survive a restart");
+        } finally {
+            second.close();
+        }
+    }
+
+    /**
+     * Test that a corrupt on-disk index falls back to a full rebuild.
+     */
+    @Test
+    public void testCorruptMmapIndexIsRebuilt() throws Exception {
+        startService().close();
+
+        // Truncate the segments file so the last commit can no longer be read
+        Path segmentsFile = indexPath.resolve(SegmentInfos.getLastCommitSegmentsFileName(Files.list(indexPath)
+                .map(file -> file.getFileName().toString())
+                .toArray(String[]::new)));
+        Files.write(segmentsFile, new byte[] {1, 2, 3});
+
+        LuceneService service = startService();
+        try {
+            assertEquals(1, readLastCommit().size(), "A corrupt index should be rebuilt");
+            assertFalse(service.search("plus.gif").isEmpty(), "The rebuilt index should be searchable");
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Test that incremental additions and deletions become searchable after a refresh.
+     */
+    @Test
+    public void testIncrementalUpdatesAreSearchableAfterRefresh() throws Exception {
+        LuceneService service = startService();
+        try {
+            service.addOrUpdatePath("lucene/core/src/java/org/apache/lucene/index/IndexWriter.java");
+            service.refreshSearcher();
+            assertEquals("lucene/core/src/java/org/apache/lucene/index/IndexWriter.java",
+                    service.search("IndexWriter.java").get(0), "An added path should rank first");
+
+            // Deleting a directory removes every path below it
+            service.deletePath("lucene/queryparser");
+            service.refreshSearcher();
+            assertEquals(List.of("lucene/core/src/java/org/apache/lucene/index/IndexWriter.java"),
+                    service.search("plus.gif"), "Deleted paths should no longer be found");
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Test that repeated queries are served from the result cache until a refresh exposes changes.
+     */
+    @Test
+    public void testResultCacheIsInvalidatedByRefresh() throws Exception {
+        LuceneService service = startService();
+        try {
+            List<String> first = service.search("plus.gif", SearchMode.NGRAM);
+            assertEquals(first, service.search(" PLUS.gif", SearchMode.NGRAM), "Normalized queries should share results");
+            assertEquals(1, service.getResultCacheStats().getHits());
+            assertEquals(1, service.getResultCacheStats().getMisses());
+
+            service.addOrUpdatePath("lucene/core/src/java/org/apache/lucene/index/plus.gif");
+            service.refreshSearcher();
+            List<String> refreshed = service.search("plus.gif", SearchMode.NGRAM);
+            assertEquals(2, service.getResultCacheStats().getMisses(), "A refresh should invalidate cached results");
+            assertEquals(first.size() + 1, refreshed.size(), "The added path should be found");
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Test that cached subsequence results follow the matcher, which sees changes before any refresh.
+     */
+    @Test
+    public void testSubsequenceCacheFollowsMatcher() throws Exception {
+        LuceneService service = startService();
+        try {
+            int before = service.search("plsgif", SearchMode.SUBSEQUENCE).size();
+            assertEquals(before, service.search("plsgif", SearchMode.SUBSEQUENCE).size());
+            assertEquals(1, service.getResultCacheStats().getHits());
+
+            service.addOrUpdatePath("lucene/core/src/java/org/apache/lucene/index/plus.gif");
+            assertEquals(before + 1, service.search("plsgif", SearchMode.SUBSEQUENCE).size(),
+                    "The added path should be found without a refresh");
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Test that batch searches return one result list per request, in request order.
+     */
+    @Test
+    public void testBatchResultsKeepRequestOrder() throws Exception {
+        LuceneService service = startService();
+        try {
+            List<List<String>> results = service.searchBatch(List.of(
+                    new SearchRequest("join.gif", SearchMode.NGRAM, 1),
+                    new SearchRequest("lqdocspg", SearchMode.SUBSEQUENCE, 10),
+                    new SearchRequest("pluss.gif", SearchMode.FUZZY, 10),
+                    new SearchRequest("img", SearchMode.NGRAM, 2)));
+
+            assertEquals(4, results.size());
+            assertEquals(List.of("lucene/queryparser/docs/xml/img/join.gif"), results.get(0));
+            assertEquals(List.of("lucene/queryparser/docs/xml/img/plus.gif"), results.get(1));
+            assertEquals("lucene/queryparser/docs/xml/img/plus.gif", results.get(2).get(0));
+            assertEquals(2, results.get(3).size(), "The limit should apply per request");
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Test that cursors page through all matches without repeating any, in every mode.
+     */
+    @Test
+    public void testCursorPagesThroughAllMatches() throws Exception {
+        LuceneService service = startService();
+        try {
+            for (SearchMode mode : SearchMode.values()) {
+                SearchPage first = service.searchPage("img/gif", mode, 2, null);
+                assertEquals(2, first.getResults().size(), mode + " first page");
+                SearchPage second = service.searchPage("img/gif", mode, 2, first.getNextCursor());
+                assertEquals(1, second.getResults().size(), mode + " second page");
+                assertNull(second.getNextCursor(), mode + " should have no third page");
+
+                Set<String> all = new HashSet<>(first.getResults());
+                all.addAll(second.getResults());
+                assertEquals(3, all.size(), mode + " pages should not overlap");
+            }
+            String cursor = service.searchPage("gif", SearchMode.NGRAM, 1, null).getNextCursor();
+            assertThrows(IllegalArgumentException.class, () -> service.searchPage("gif", SearchMode.FUZZY, 1, cursor),
+                    "A cursor is only valid for the mode that produced it");
+
+            // Forged cursors: an offset that would overflow, and a shard the index does not have
+            String farOffset = SearchCursor.offset(SearchMode.SUBSEQUENCE, Integer.MAX_VALUE - 1).encode();
+            assertThrows(IllegalArgumentException.class,
+                    () -> service.searchPage("gif", SearchMode.SUBSEQUENCE, 10, farOffset));
+            String otherShard = SearchCursor.after(SearchMode.NGRAM, null, SearchOrder.RELEVANCE,
+                    new ScoreDoc(0, 1f, 5)).encode();
+            assertThrows(IllegalArgumentException.class, () -> service.searchPage("gif", SearchMode.NGRAM, 1, otherShard));
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Test that path analysis finds text starting inside a component, ranked below paths where it
+     * starts a component.
+     */
+    @Test
+    public void testPathAnalysisFindsInfixes() throws Exception {
+        LuceneIndexProperties properties = properties();
+        properties.setAnalysis(LuceneIndexProperties.Analysis.PATH);
+        LuceneService service = new LuceneService(properties);
+        service.init();
+        try {
+            assertEquals(List.of("lucene/queryparser/docs/xml/img/minusbottom.gif"),
+                    service.search("ottom", SearchMode.NGRAM));
+            assertTrue(service.search("ttomx", SearchMode.NGRAM).isEmpty(), "Every gram must be found in order");
+
+            service.addOrUpdatePath("lucene/queryparser/docs/xml/img/bottom.gif");
+            service.refreshSearcher();
+            assertEquals(List.of("lucene/queryparser/docs/xml/img/bottom.gif",
+                    "lucene/queryparser/docs/xml/img/minusbottom.gif"), service.search("bottom", SearchMode.NGRAM));
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Test that auto searches answer from the cheapest tier that finds a path, and that later pages
+     * stay in that tier.
+     */
+    @Test
+    public void testAutoSearchFallsBackTierByTier() throws Exception {
+        LuceneIndexProperties properties = properties();
+        properties.setAnalysis(LuceneIndexProperties.Analysis.PATH);
+        LuceneService service = new LuceneService(properties);
+        service.init();
+        try {
+            String plus = "lucene/queryparser/docs/xml/img/plus.gif";
+            assertTier(service, "plus.gif", SearchTier.EXACT, plus);
+            assertTier(service, "minusbott", SearchTier.NGRAM, "lucene/queryparser/docs/xml/img/minusbottom.gif");
+            assertTier(service, "plsu.gif", SearchTier.FUZZY_1, plus);
+            assertTier(service, "pluss.gf", SearchTier.FUZZY_2, plus);
+            assertEquals(List.of(), service.searchPage("zzzzqqqq", SearchMode.AUTO, 10, null).getResults());
+
+            SearchPage first = service.searchPage("gif", SearchMode.AUTO, 2, null);
+            assertEquals(SearchTier.NGRAM, first.getTier());
+            SearchPage second = service.searchPage("gif", SearchMode.AUTO, 2, first.getNextCursor());
+            assertEquals(SearchTier.NGRAM, second.getTier());
+            Set<String> all = new HashSet<>(first.getResults());
+            all.addAll(second.getResults());
+            assertEquals(3, all.size());
+            assertThrows(IllegalArgumentException.class,
+                    () -> service.searchPage("gif", SearchMode.NGRAM, 2, first.getNextCursor()));
+        } finally {
+            service.close();
+        }
+    }
+
+    private static void assertTier(LuceneService service, String query, SearchTier tier, String path)
+            throws Exception {
+        SearchPage page = service.searchPage(query, SearchMode.AUTO, 10, null);
+        assertEquals(tier, page.getTier(), query + " " + page.getResults());
+        assertTrue(page.getResults().contains(path), query + " " + page.getResults());
+    }
+
+    /**
+     * Test that a search past its deadline answers with a partial page that is neither continued
+     * nor cached, while rewriting or while collecting.
+     */
+    @Test
+    public void testSearchPastDeadlineIsPartial() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        LuceneIndexProperties properties = properties();
+        LuceneService service = new LuceneService(properties, registry);
+        service.init();
+        try {
+            properties.setSearchTimeout(Duration.ofNanos(1));
+            for (SearchMode mode : List.of(SearchMode.NGRAM, SearchMode.FUZZY)) {
+                SearchPage partial = service.searchPage("plus.gif", mode, 1, null);
+                assertTrue(partial.isPartial(), mode + " should run out of time");
+                assertNull(partial.getNextCursor(), "A partial page cannot be continued");
+            }
+            assertEquals(1, registry.get("lucene.search.timeouts").tag("mode", "fuzzy").counter().count());
+            // Batch searches are held to the same deadline
+            service.searchBatch(List.of(new SearchRequest("plus.gif", SearchMode.FUZZY, 1)));
+            assertEquals(2, registry.get("lucene.search.timeouts").tag("mode", "fuzzy").counter().count());
+
+            properties.setSearchTimeout(Duration.ofSeconds(30));
+            SearchPage complete = service.searchPage("plus.gif", SearchMode.FUZZY, 1, null);
+            assertFalse(complete.isPartial(), "The partial page should not have been cached");
+            assertEquals(List.of("lucene/queryparser/docs/xml/img/plus.gif"), complete.getResults());
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Test that a subsequence search that reached its candidate cap is partial and cannot be paged.
+     */
+    @Test
+    public void testCappedSubsequenceSearchIsPartial() throws Exception {
+        LuceneIndexProperties properties = properties();
+        properties.setSubsequenceMaxCandidates(2);
+        LuceneService service = new LuceneService(properties);
+        service.init();
+        try {
+            SearchPage capped = service.searchPage("gif", SearchMode.SUBSEQUENCE, 1, null);
+            assertTrue(capped.isPartial());
+            assertNull(capped.getNextCursor(), "Later pages would run out at the cap");
+
+            SearchPage complete = service.searchPage("lqdocspg", SearchMode.SUBSEQUENCE, 1, null);
+            assertFalse(complete.isPartial());
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Test that a deadline does not change how fuzzy matches rank: rewriting and collecting share
+     * one reader, so the blended statistics of the expanded terms are kept.
+     */
+    @Test
+    public void testDeadlineKeepsFuzzyRanking() throws Exception {
+        LuceneIndexProperties properties = properties();
+        properties.setResultCacheSize(0);
+        LuceneService service = new LuceneService(properties);
+        service.init();
+        try {
+            // A frequent exact name next to a rare one a single edit away
+            for (int i = 0; i < 30; i++) {
+                service.addOrUpdatePath("lucene/module" + i + "/icons/plus.gif");
+            }
+            service.addOrUpdatePath("lucene/other/icons/pluse.gif");
+            service.refreshSearcher();
+
+            properties.setSearchTimeout(Duration.ZERO);
+            List<String> unbounded = service.searchPage("plus.gif", SearchMode.FUZZY, 5, null).getResults();
+            properties.setSearchTimeout(Duration.ofSeconds(30));
+            SearchPage bounded = service.searchPage("plus.gif", SearchMode.FUZZY, 5, null);
+
+            assertFalse(bounded.isPartial());
+            assertEquals(unbounded, bounded.getResults());
+            assertEquals(List.of(unbounded), service.searchBatch(List.of(new SearchRequest("plus.gif", SearchMode.FUZZY, 5))));
+            assertFalse(bounded.getResults().contains("lucene/other/icons/pluse.gif"),
+                    "The rare misspelling should not outrank exact matches");
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Test that a streaming search hands over every path in the scope, unranked and unlimited.
+     */
+    @Test
+    public void testStreamSearchWritesEveryMatch() throws Exception {
+        LuceneService service = startService();
+        try {
+            service.addOrUpdatePath("lucene/core/src/java/org/apache/lucene/index/IndexWriter.java");
+            service.refreshSearcher();
+
+            List<String> paths = new ArrayList<>();
+            long count = service.streamSearch(null, SearchMode.NGRAM, "lucene/queryparser/").writeTo(paths::add);
+            assertEquals(3, count);
+            assertEquals(Set.of("lucene/queryparser/docs/xml/img/plus.gif", "lucene/queryparser/docs/xml/img/join.gif",
+                    "lucene/queryparser/docs/xml/img/minusbottom.gif"), new HashSet<>(paths));
+
+            paths.clear();
+            service.streamSearch("join", SearchMode.FUZZY, "lucene").writeTo(paths::add);
+            assertEquals(List.of("lucene/queryparser/docs/xml/img/join.gif"), paths);
+
+            assertThrows(IllegalArgumentException.class, () -> service.streamSearch(" ", SearchMode.NGRAM, null));
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Test that searching segment slices in parallel finds the same hits as a serial search.
+     */
+    @Test
+    public void testSlicedSearchMatchesSerialSearch() throws Exception {
+        LuceneIndexProperties properties = properties();
+        properties.setSliceThreads(2);
+        // One segment per slice, so the sample index and every refresh add a slice
+        properties.setSliceMaxDocs(1);
+        properties.setSliceMaxSegments(1);
+        LuceneService service = new LuceneService(properties);
+        service.init();
+        try {
+            service.addOrUpdatePath("lucene/core/src/java/org/apache/lucene/index/plus.gif");
+            service.refreshSearcher();
+            service.addOrUpdatePath("lucene/core/src/java/org/apache/lucene/index/join.gif");
+            service.refreshSearcher();
+
+            Set<String> expected = Set.of("lucene/queryparser/docs/xml/img/plus.gif",
+                    "lucene/queryparser/docs/xml/img/join.gif", "lucene/queryparser/docs/xml/img/minusbottom.gif",
+                    "lucene/core/src/java/org/apache/lucene/index/plus.gif",
+                    "lucene/core/src/java/org/apache/lucene/index/join.gif");
+            assertEquals(expected, new HashSet<>(service.search("gif", SearchMode.NGRAM, 10)));
+            assertEquals(2, service.search("plus.gif", SearchMode.FUZZY, 2).size());
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Test that a sharded index finds, pages and streams the same paths as a single index, and is reused on restart.
+     */
+    @Test
+    public void testShardedSearchMatchesSingleShard() throws Exception {
+        List<String> paths = new ArrayList<>();
+        for (String top : List.of("alpha", "beta", "gamma", "delta")) {
+            for (int i = 0; i < 10; i++) {
+                paths.add(top + "/dir" + (i % 3) + "/file" + i + ".txt");
+            }
+        }
+        LuceneIndexProperties singleProperties = properties();
+        singleProperties.setPath(indexPath.resolve("single"));
+        LuceneService single = new LuceneService(singleProperties);
+        single.init();
+        try {
+            for (String path : paths) {
+                single.addOrUpdatePath(path);
+            }
+            single.refreshSearcher();
+
+            for (LuceneIndexProperties.Shards.Routing routing : LuceneIndexProperties.Shards.Routing.values()) {
+                LuceneIndexProperties properties = properties();
+                properties.setPath(indexPath.resolve(routing.name()));
+                properties.getShards().setCount(3);
+                properties.getShards().setRouting(routing);
+                LuceneService sharded = new LuceneService(properties);
+                sharded.init();
+                try {
+                    for (String path : paths) {
+                        sharded.addOrUpdatePath(path);
+                    }
+                    sharded.deletePath("beta/dir1");
+                    single.deletePath("beta/dir1");
+                    sharded.refreshSearcher();
+                    single.refreshSearcher();
+
+                    // Scores use per-shard statistics, so only the sets of hits are compared
+                    for (SearchMode mode : SearchMode.values()) {
+                        assertEquals(new HashSet<>(single.search("file1", mode, 100)),
+                                new HashSet<>(sharded.search("file1", mode, 100)), routing + " " + mode);
+                    }
+
+                    Set<String> paged = new HashSet<>();
+                    int pages = 0;
+                    String cursor = null;
+                    do {
+                        SearchPage page = sharded.searchPage("txt", SearchMode.NGRAM, 4, cursor);
+                        for (String path : page.getResults()) {
+                            assertTrue(paged.add(path), routing + " repeated " + path);
+                        }
+                        cursor = page.getNextCursor();
+                        pages++;
+                    } while (cursor != null && pages < 100);
+                    assertEquals(new HashSet<>(single.search("txt", SearchMode.NGRAM, 100)), paged, routing + " pages");
+
+                    List<String> streamed = new ArrayList<>();
+                    sharded.streamSearch(null, SearchMode.NGRAM, "gamma/").writeTo(streamed::add);
+                    assertEquals(10, streamed.size(), routing + " scoped stream");
+                } finally {
+                    sharded.close();
+                }
+
+                LuceneService restarted = new LuceneService(properties);
+                restarted.init();
+                try {
+                    assertTrue(Files.exists(properties.getPath().resolve("shard-2")));
+                    assertEquals(single.search("file7", SearchMode.FUZZY, 100).size(),
+                            restarted.search("file7", SearchMode.FUZZY, 100).size(), routing + " after restart");
+                } finally {
+                    restarted.close();
+                }
+            }
+        } finally {
+            single.close();
+        }
+    }
+
+    /**
+     * Test that a scope restricts searches to one subtree, excluding siblings that share its name as a prefix.
+     */
+    @Test
+    public void testScopedSearchOnlyFindsPathsBelowTheDirectory() throws Exception {
+        LuceneService service = startService();
+        try {
+            service.addOrUpdatePath("lucene/queryparser2/docs/plus.gif");
+            service.addOrUpdatePath("lucene/core/docs/plus.gif");
+            service.refreshSearcher();
+
+            for (SearchMode mode : List.of(SearchMode.NGRAM, SearchMode.FUZZY)) {
+                List<String> scoped = service.searchPage("plus.gif", mode, 10, null, "lucene/queryparser/").getResults();
+                assertTrue(scoped.contains("lucene/queryparser/docs/xml/img/plus.gif"), mode + " " + scoped);
+                assertTrue(scoped.stream().allMatch(path -> path.startsWith("lucene/queryparser/")), mode + " " + scoped);
+                assertEquals(List.of("lucene/core/docs/plus.gif"),
+                        service.searchPage("plus.gif", mode, 10, null, "lucene/core").getResults(), mode.name());
+            }
+            assertEquals(service.search("plus.gif"), service.searchPage("plus.gif", SearchMode.NGRAM, 10, null, "/")
+                    .getResults(), "The root scope is the whole index");
+            assertThrows(IllegalArgumentException.class,
+                    () -> service.searchPage("plus", SearchMode.SUBSEQUENCE, 10, null, "lucene/core"));
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Test that depth-ordered pages of a depth-sorted sharded index come shallowest and shortest
+     * first, without repeats, and cover every match.
+     */
+    @Test
+    public void testDepthOrderPagesFromShallowestPath() throws Exception {
+        LuceneIndexProperties properties = properties();
+        properties.setIndexSort(LuceneIndexProperties.IndexSort.DEPTH);
+        properties.getShards().setCount(3);
+        LuceneService service = new LuceneService(properties);
+        service.init();
+        try {
+            for (int i = 0; i < 20; i++) {
+                service.addOrUpdatePath("deep/".repeat(i % 5) + "report" + i + ".pdf");
+            }
+            service.refreshSearcher();
+
+            List<String> paged = new ArrayList<>();
+            int pages = 0;
+            String cursor = null;
+            do {
+                SearchPage page = service.searchPage("report", SearchMode.NGRAM, 3, cursor, null, SearchOrder.DEPTH);
+                paged.addAll(page.getResults());
+                cursor = page.getNextCursor();
+                pages++;
+            } while (cursor != null && pages < 100);
+            assertEquals(20, new HashSet<>(paged).size(), "Pages should not repeat " + paged);
+            assertEquals(new HashSet<>(service.search("report", SearchMode.NGRAM, 100)), new HashSet<>(paged));
+            for (int i = 1; i < paged.size(); i++) {
+                assertTrue(PathDocuments.rank(paged.get(i - 1)) <= PathDocuments.rank(paged.get(i)), paged.toString());
+            }
+
+            String depthCursor = service.searchPage("report", SearchMode.NGRAM, 3, null, null, SearchOrder.DEPTH)
+                    .getNextCursor();
+            assertThrows(IllegalArgumentException.class, () -> service.searchPage("report", SearchMode.NGRAM, 3,
+                    depthCursor, null, SearchOrder.RELEVANCE), "A cursor is only valid for the order that produced it");
+            assertThrows(IllegalArgumentException.class, () -> service.searchPage("report", SearchMode.SUBSEQUENCE, 3,
+                    null, null, SearchOrder.DEPTH));
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Test that top-level routing of a crawled root spreads its directories over the shards, keeps
+     * each directory in one shard, and still finds every path of a scope.
+     */
+    @Test
+    public void testTopLevelRoutingSpreadsCrawledRoot() throws Exception {
+        Path root = Files.createDirectories(indexPath.resolve("tree"));
+        for (int i = 0; i < 12; i++) {
+            Path directory = Files.createDirectories(root.resolve("d" + i + "/sub"));
+            Files.createFile(directory.resolve("file" + i + ".txt"));
+            Files.createFile(root.resolve("d" + i + "/readme" + i + ".txt"));
+        }
+        LuceneIndexProperties properties = properties();
+        properties.setPath(indexPath.resolve("index"));
+        properties.setRoots(List.of(root));
+        properties.getWatch().setMode(LuceneIndexProperties.Watch.Mode.OFF);
+        properties.getShards().setCount(3);
+        properties.getShards().setRouting(LuceneIndexProperties.Shards.Routing.TOP_LEVEL);
+        LuceneService service = new LuceneService(properties);
+        service.init();
+        try {
+            List<String> paths = new ArrayList<>();
+            service.streamSearch(null, SearchMode.NGRAM, "tree/d3").writeTo(paths::add);
+            assertEquals(Set.of("tree/d3/readme3.txt", "tree/d3/sub/file3.txt"), new HashSet<>(paths));
+            paths.clear();
+            assertEquals(24, service.streamSearch(null, SearchMode.NGRAM, "tree").writeTo(paths::add));
+        } finally {
+            service.close();
+        }
+
+        Map<String, Integer> shardOfDirectory = new HashMap<>();
+        int usedShards = 0;
+        for (int shard = 0; shard < 3; shard++) {
+            try (Directory directory = FSDirectory.open(indexPath.resolve("index/shard-" + shard));
+                 DirectoryReader reader = DirectoryReader.open(directory)) {
+                if (reader.numDocs() > 0) {
+                    usedShards++;
+                }
+                for (LeafReaderContext leaf : reader.leaves()) {
+                    SortedDocValues values = DocValues.getSorted(leaf.reader(), PathDocuments.PATH_FIELD);
+                    while (values.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                        String path = values.lookupOrd(values.ordValue()).utf8ToString();
+                        String top = path.substring(0, path.indexOf('/', "tree/".length()));
+                        assertEquals(shard, shardOfDirectory.merge(top, shard, (a, b) -> a.equals(b) ? a : -1),
+                                top + " should be in a single shard");
+                    }
+                }
+            }
+        }
+        assertEquals(12, shardOfDirectory.size());
+        assertTrue(usedShards > 1, "Directories below the root should spread over the shards");
+    }
+
+    /**
+     * Test that a new instance starts from another's snapshot and catches up with later changes to the roots.
+     */
+    @Test
+    public void testSnapshotImportCatchesUpWithRoots() throws Exception {
+        Path root = Files.createDirectories(indexPath.resolve("tree"));
+        Files.createDirectories(root.resolve("docs"));
+        Files.createFile(root.resolve("docs/keep.txt"));
+        Files.createFile(root.resolve("docs/gone.txt"));
+
+        LuceneIndexProperties exporting = properties();
+        exporting.setPath(indexPath.resolve("a"));
+        exporting.setRoots(List.of(root));
+        exporting.getWatch().setMode(LuceneIndexProperties.Watch.Mode.OFF);
+        LuceneService first = new LuceneService(exporting);
+        first.init();
+        Path snapshot = indexPath.resolve("snapshot.zip");
+        try (OutputStream out = Files.newOutputStream(snapshot)) {
+            first.exportSnapshot(out);
+        } finally {
+            first.close();
+        }
+
+        Files.delete(root.resolve("docs/gone.txt"));
+        Files.createFile(root.resolve("docs/added.txt"));
+
+        LuceneIndexProperties importing = new LuceneIndexProperties();
+        importing.setStorage(LuceneIndexProperties.Storage.MEMORY);
+        importing.setRoots(List.of(root));
+        importing.getWatch().setMode(LuceneIndexProperties.Watch.Mode.OFF);
+        importing.setImportSnapshot(snapshot.toString());
+        LuceneService second = new LuceneService(importing);
+        second.init();
+        try {
+            assertTrue(second.search("keep.txt").contains("tree/docs/keep.txt"), "Exported paths should be served");
+            long deadline = System.currentTimeMillis() + 10_000;
+            while ((!second.search("added.txt").contains("tree/docs/added.txt")
+                    || second.search("gone.txt").contains("tree/docs/gone.txt"))
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(second.search("added.txt").contains("tree/docs/added.txt"), "New paths should be added");
+            assertFalse(second.search("gone.txt").contains("tree/docs/gone.txt"), "Deleted paths should be removed");
+        } finally {
+            second.close();
+        }
+    }
+
+    /**
+     * Test that the suggester is built with the index and picks up changes once rebuilt.
+     */
+    @Test
+    public void testSuggestionsFollowIndexChanges() throws Exception {
+        LuceneIndexProperties properties = properties();
+        properties.setSuggestRebuildInterval(Duration.ofMillis(50));
+        LuceneService service = new LuceneService(properties);
+        service.init();
+        try {
+            assertEquals(List.of("plus.gif"), service.suggest("pl", 10));
+            assertThrows(IllegalArgumentException.class, () -> service.suggest("pl", 0));
+
+            service.addOrUpdatePath("lucene/core/src/java/org/apache/lucene/index/plugin.java");
+            service.refreshSearcher();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (service.suggest("pl", 10).size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(Set.of("plus.gif", "plugin.java"), new HashSet<>(service.suggest("pl", 10)));
+
+            // Re-indexing a path leaves its counts alone; deleting a directory drops the names below it
+            service.addOrUpdatePath("lucene/core/src/java/org/apache/lucene/index/plugin.java");
+            service.deletePath("lucene/core");
+            deadline = System.currentTimeMillis() + 10_000;
+            while (service.suggest("pl", 10).size() > 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(List.of("plus.gif"), service.suggest("pl", 10));
+        } finally {
+            service.close();
+        }
+    }
+
+    /**
+     * Test that searches are timed per mode and phase, and hits, fuzzy clauses and documents are counted.
+     */
+    @Test
+    public void testSearchMetricsAreRecorded() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        LuceneService service = new LuceneService(properties(), registry);
+        service.init();
+        try {
+            int hits = service.search("plus.gif", SearchMode.NGRAM).size();
+            service.search("plus.gif", SearchMode.NGRAM);
+            service.search("pluss.gif", SearchMode.FUZZY);
+
+            assertEquals(1, registry.get("lucene.search").tags("mode", "ngram", "cache", "miss").timer().count());
+            assertEquals(1, registry.get("lucene.search").tags("mode", "ngram", "cache", "hit").timer().count());
+            for (String phase : List.of("queue", "parse", "rewrite", "search", "fetch")) {
+                assertEquals(1, registry.get("lucene.search.phase").tags("mode", "fuzzy", "phase", phase).timer().count(),
+                        phase + " should be timed once");
+            }
+            assertEquals(2.0 * hits, registry.get("lucene.search.hits").tag("mode", "ngram").counter().count());
+            assertTrue(registry.get("lucene.search.fuzzy.clauses").counter().count() > 0);
+            assertEquals(3.0, registry.get("lucene.index.documents").gauge().value());
+
+            service.addOrUpdatePath("lucene/core/src/java/org/apache/lucene/index/IndexWriter.java");
+            service.refreshSearcher();
+            assertEquals(4.0, registry.get("lucene.index.documents").gauge().value(), "A refresh should update the count");
+        } finally {
+            service.close();
+        }
+    }
+
+    private LuceneService startService() throws Exception {
+        LuceneService service = new LuceneService(properties());
+        service.init();
+        return service;
+    }
+
+    private LuceneIndexProperties properties() {
+        LuceneIndexProperties properties = new LuceneIndexProperties();
+        properties.setStorage(LuceneIndexProperties.Storage.MMAP);
+        properties.setPath(indexPath);
+        return properties;
+    }
+
+    private SegmentInfos readLastCommit() throws Exception {
+        try (Directory directory = FSDirectory.open(indexPath)) {
+            return SegmentInfos.readLatestCommit(directory);
+        }
+    }
+
+    private long lastCommitGeneration() throws Exception {
+        try (Directory directory = FSDirectory.open(indexPath)) {
+            return SegmentInfos.getLastCommitGeneration(directory);
+        }
+    }
+}
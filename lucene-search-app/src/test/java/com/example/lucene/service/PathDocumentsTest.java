@@ -0,0 +1,76 @@
+package com.example.lucene.service;
+
+import com.example.lucene.config.LuceneIndexProperties;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PathDocumentsTest {
+
+    /**
+     * Test that paths are read from doc values in hit order, across segments, and not stored twice.
+     */
+    @Test
+    public void testReadPathsKeepsHitOrder() throws Exception {
+        try (Directory directory = new ByteBuffersDirectory()) {
+            IndexWriterConfig config = new IndexWriterConfig(PathDocuments.indexAnalyzer(LuceneIndexProperties.Analysis.PATH));
+            try (IndexWriter writer = new IndexWriter(directory, config)) {
+                writer.addDocument(PathDocuments.create("a/one.txt"));
+                writer.addDocument(PathDocuments.create("a/two.txt"));
+                // Flush so the remaining documents land in a second segment
+                writer.commit();
+                writer.addDocument(PathDocuments.create("b/three.txt"));
+                writer.addDocument(PathDocuments.create("b/four.txt"));
+            }
+
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                assertEquals(2, reader.leaves().size());
+                ScoreDoc[] hits = {new ScoreDoc(3, 4f), new ScoreDoc(0, 3f), new ScoreDoc(2, 2f), new ScoreDoc(1, 1f)};
+                assertEquals(List.of("b/four.txt", "a/one.txt", "b/three.txt", "a/two.txt"),
+                        PathDocuments.readPaths(reader, hits));
+                assertTrue(reader.storedFields().document(0).getFields().isEmpty(), "Paths should not be stored");
+            }
+        }
+    }
+
+    /**
+     * Test that a subtree filter matches exactly the paths below a directory, whether it reads
+     * the ordinals of a large subtree or the postings of a small one.
+     */
+    @Test
+    public void testSubtreeQueryMatchesPathsBelowDirectory() throws Exception {
+        try (Directory directory = new ByteBuffersDirectory()) {
+            IndexWriterConfig config = new IndexWriterConfig(PathDocuments.indexAnalyzer(LuceneIndexProperties.Analysis.PATH));
+            try (IndexWriter writer = new IndexWriter(directory, config)) {
+                for (int i = 0; i < 200; i++) {
+                    writer.addDocument(PathDocuments.create("big/dir" + (i % 7) + "/file" + i + ".txt"));
+                }
+                writer.addDocument(PathDocuments.create("small/one.txt"));
+                writer.addDocument(PathDocuments.create("small/sub/two.txt"));
+                // Shares the directory name as a prefix without being below it
+                writer.addDocument(PathDocuments.create("small2/three.txt"));
+                writer.addDocument(PathDocuments.create("small.txt"));
+            }
+
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                assertEquals(200, searcher.count(PathDocuments.subtreeQuery("big")));
+                assertEquals(2, searcher.count(PathDocuments.subtreeQuery("small")));
+                assertEquals(1, searcher.count(PathDocuments.subtreeQuery("small/sub")));
+                assertEquals(0, searcher.count(PathDocuments.subtreeQuery("small/one.txt")));
+                assertEquals(0, searcher.count(PathDocuments.subtreeQuery("missing")));
+                assertEquals(reader.numDocs(), searcher.count(PathDocuments.subtreeQuery("")));
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.lucene.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SearchAdmissionTest {
+
+    /**
+     * Test that a full queue rejects a search at once, only for its own mode, until a slot frees up.
+     */
+    @Test
+    public void testFullQueueRejectsOnArrival() throws Exception {
+        SearchAdmission admission = new SearchAdmission(1, 0);
+        SearchDeadline deadline = SearchDeadline.after(Duration.ofSeconds(30));
+
+        SearchAdmission.Permit fuzzy = admission.admit(SearchMode.FUZZY, deadline);
+        SearchRejectedException rejected = assertThrows(SearchRejectedException.class,
+                () -> admission.admit(SearchMode.FUZZY, deadline));
+        assertTrue(rejected.isQueueFull());
+        admission.admit(SearchMode.NGRAM, deadline).close();
+
+        fuzzy.close();
+        admission.admit(SearchMode.FUZZY, deadline).close();
+    }
+
+    /**
+     * Test that a queued search gives up once its deadline passes.
+     */
+    @Test
+    public void testQueuedSearchRejectedAtDeadline() throws Exception {
+        SearchAdmission admission = new SearchAdmission(1, 1);
+
+        try (SearchAdmission.Permit running = admission.admit(SearchMode.NGRAM, SearchDeadline.after(Duration.ZERO))) {
+            SearchRejectedException rejected = assertThrows(SearchRejectedException.class,
+                    () -> admission.admit(SearchMode.NGRAM, SearchDeadline.after(Duration.ofMillis(20))));
+            assertFalse(rejected.isQueueFull());
+        }
+    }
+
+    /**
+     * Test that without a concurrency limit every search is admitted.
+     */
+    @Test
+    public void testUnlimitedAdmitsEverySearch() throws Exception {
+        SearchAdmission admission = new SearchAdmission(0, 0);
+
+        for (int i = 0; i < 100; i++) {
+            admission.admit(SearchMode.FUZZY, SearchDeadline.after(Duration.ZERO));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.lucene.suggest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PathSuggesterTest {
+
+    private PathSuggester suggester;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        suggester = new PathSuggester.Builder()
+                .add("lucene/queryparser/docs/xml/img/plus.gif")
+                .add("lucene/queryparser/docs/xml/img/join.gif")
+                .add("lucene/queryparser/docs/xml/img/minusbottom.gif")
+                .add("lucene/core/src/java/org/apache/lucene/index/IndexWriter.java")
+                .add("lucene/core/src/java/org/apache/lucene/index/IndexReader.java")
+                .build();
+    }
+
+    /**
+     * Test that prefixes complete to file and directory names, the most frequent first.
+     */
+    @Test
+    public void testCompletesByFrequency() throws Exception {
+        // "index" is in two paths, "img" in three, "indexreader.java" and "indexwriter.java" in one each
+        assertEquals(List.of("img", "index"), suggester.suggest("i", 2));
+        assertEquals(List.of("plus.gif"), suggester.suggest("pl", 10));
+        assertEquals(3, suggester.suggest("IndeX", 10).size(), "Lookups should be case-insensitive");
+    }
+
+    /**
+     * Test that an exact component ranks first, and a path that repeats a component counts it once.
+     */
+    @Test
+    public void testExactMatchFirstAndRepeatsCountOnce() throws Exception {
+        assertEquals("index", suggester.suggest("index", 10).get(0));
+        // "lucene" occurs twice in the IndexWriter path but is still one suggestion
+        assertEquals(List.of("lucene"), suggester.suggest("luc", 10));
+    }
+
+    /**
+     * Test that removing paths lowers counts and drops components no path contains any more.
+     */
+    @Test
+    public void testRemovedPathsAreNoLongerSuggested() throws Exception {
+        PathSuggester.Builder builder = new PathSuggester.Builder()
+                .add("docs/img/plus.gif")
+                .add("docs/img/join.gif")
+                .add("docs/index/plugin.txt");
+        long changes = builder.changes();
+
+        builder.remove("docs/img/plus.gif").remove("docs/img/join.gif");
+
+        assertEquals(changes + 2, builder.changes());
+        assertEquals(List.of("plugin.txt"), builder.build().suggest("pl", 10));
+        assertEquals(List.of("index"), builder.build().suggest("i", 10));
+    }
+
+    /**
+     * Test that unknown prefixes, empty prefixes and an empty suggester suggest nothing.
+     */
+    @Test
+    public void testNoSuggestions() throws Exception {
+        assertTrue(suggester.suggest("zzz", 10).isEmpty());
+        assertTrue(suggester.suggest("", 10).isEmpty());
+        assertTrue(new PathSuggester.Builder().build().suggest("a", 10).isEmpty());
+        assertEquals(0, PathSuggester.empty().size());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.lucene.benchmarks;
+
+import com.example.lucene.analyzer.ConcatenationAnalyzer;
+import com.example.lucene.analyzer.CustomNGramAnalyzer;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token stream cost of the analyzers on their own, without indexing: the n-gram analyzer
+ * over raw paths, and the concatenation analyzer over paths split into words.
+ * Every invocation analyzes the next text of the corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalysisBenchmark {
+
+    @Param({"10000"})
+    public int paths;
+
+    @Param({"8"})
+    public int depth;
+
+    private Analyzer ngramAnalyzer;
+    private Analyzer concatenationAnalyzer;
+    private List<String> texts;
+    private List<String> words;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ngramAnalyzer = new CustomNGramAnalyzer(2, 10);
+        concatenationAnalyzer = new ConcatenationAnalyzer();
+        texts = BenchmarkCorpus.paths(paths, depth);
+        // ConcatenationAnalyzer splits on whitespace, so give it the components as words
+        words = texts.stream().map(path -> path.replace('/', ' ')).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ngramAnalyzer.close();
+        concatenationAnalyzer.close();
+    }
+
+    @Benchmark
+    public void ngramAnalyzer(Blackhole blackhole) throws IOException {
+        consume(ngramAnalyzer, texts.get(nextIndex()), blackhole);
+    }
+
+    @Benchmark
+    public void concatenationAnalyzer(Blackhole blackhole) throws IOException {
+        consume(concatenationAnalyzer, words.get(nextIndex()), blackhole);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (next + 1) % texts.size();
+        return index;
+    }
+
+    private static void consume(Analyzer analyzer, String text, Blackhole blackhole) throws IOException {
+        try (TokenStream tokenStream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute term = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                blackhole.consume(term.length());
+            }
+            tokenStream.end();
+        }
+    }
+}
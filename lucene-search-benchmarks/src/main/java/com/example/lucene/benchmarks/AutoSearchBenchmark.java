@@ -0,0 +1,112 @@
+package com.example.lucene.benchmarks;
+
+import com.example.lucene.config.LuceneIndexProperties;
+import com.example.lucene.service.LuceneService;
+import com.example.lucene.service.SearchMode;
+import com.example.lucene.service.SearchTier;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded latency of auto searches against always running the full fuzzy query, with the
+ * result cache off so that every invocation searches. {@code sampled} queries are the usual mix of
+ * fragments and misspelled file names; {@code exact} queries are whole file names, which the first
+ * tier answers. The setup prints how many queries each tier answered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class AutoSearchBenchmark {
+
+    private static final int QUERY_COUNT = 256;
+
+    @Param({"100000"})
+    public int paths;
+
+    @Param({"8"})
+    public int depth;
+
+    @Param({"NGRAM", "PATH"})
+    public LuceneIndexProperties.Analysis analysis;
+
+    @Param({"sampled", "exact"})
+    public String queryMix;
+
+    private Path root;
+    private LuceneService service;
+    private List<String> queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void buildIndex() throws IOException, ParseException {
+        List<String> corpus = BenchmarkCorpus.paths(paths, depth);
+        root = BenchmarkCorpus.materialize(corpus);
+        LuceneIndexProperties properties = BenchmarkCorpus.properties(root, analysis);
+        properties.setResultCacheSize(0);
+        service = new LuceneService(properties);
+        service.init();
+
+        if (queryMix.equals("exact")) {
+            Random random = new Random(BenchmarkCorpus.SEED);
+            queries = new ArrayList<>(QUERY_COUNT);
+            for (int i = 0; i < QUERY_COUNT; i++) {
+                String path = corpus.get(random.nextInt(corpus.size()));
+                queries.add(path.substring(path.lastIndexOf('/') + 1));
+            }
+        } else {
+            queries = BenchmarkCorpus.queries(corpus, QUERY_COUNT);
+        }
+
+        Map<SearchTier, Integer> answered = new EnumMap<>(SearchTier.class);
+        for (String query : queries) {
+            answered.merge(service.searchPage(query, SearchMode.AUTO, 10, null).getTier(), 1, Integer::sum);
+        }
+        System.out.println("Tiers answering " + queryMix + " queries: " + answered);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        service.close();
+        BenchmarkCorpus.delete(root);
+    }
+
+    @Benchmark
+    public List<String> fuzzySearch() throws IOException, ParseException {
+        return service.search(nextQuery(), SearchMode.FUZZY);
+    }
+
+    @Benchmark
+    public List<String> autoSearch() throws IOException, ParseException {
+        return service.search(nextQuery(), SearchMode.AUTO);
+    }
+
+    private String nextQuery() {
+        String query = queries.get(next);
+        next = (next + 1) % queries.size();
+        return query;
+    }
+}
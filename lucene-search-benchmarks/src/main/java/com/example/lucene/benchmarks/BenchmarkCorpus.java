@@ -0,0 +1,101 @@
+package com.example.lucene.benchmarks;
+
+import com.example.lucene.config.LuceneIndexProperties;
+import com.example.lucene.corpus.SyntheticPathCorpus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic path corpus shared by the benchmarks, optionally materialized as empty files
+ * so the application can crawl it like a real checkout.
+ */
+final class BenchmarkCorpus {
+
+    /** Distinct directory names per level, see SyntheticPathCorpus */
+    static final int FAN_OUT = 6;
+    static final long SEED = 42;
+
+    private BenchmarkCorpus() {
+    }
+
+    static List<String> paths(int count, int depth) {
+        return SyntheticPathCorpus.generate(count, depth, FAN_OUT, SEED);
+    }
+
+    /**
+     * Create every path as an empty file below a new temporary directory and return that directory.
+     */
+    static Path materialize(List<String> paths) throws IOException {
+        Path root = Files.createTempDirectory("lucene-bench");
+        for (String path : paths) {
+            Path file = root.resolve(path);
+            Files.createDirectories(file.getParent());
+            Files.createFile(file);
+        }
+        return root;
+    }
+
+    static void delete(Path root) throws IOException {
+        if (root == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Index settings for an in-memory index over the given root with change watching off,
+     * so nothing but the benchmarked work runs in the background.
+     */
+    static LuceneIndexProperties properties(Path root, LuceneIndexProperties.Analysis analysis) {
+        LuceneIndexProperties properties = new LuceneIndexProperties();
+        properties.setStorage(LuceneIndexProperties.Storage.MEMORY);
+        properties.setAnalysis(analysis);
+        properties.setRoots(List.of(root));
+        properties.getWatch().setMode(LuceneIndexProperties.Watch.Mode.OFF);
+        return properties;
+    }
+
+    /**
+     * Queries a user might type for the given paths: a component or file name fragment, a
+     * directory/file combination, and a misspelled file name. The same seed gives the same queries.
+     */
+    static List<String> queries(List<String> paths, int count) {
+        Random random = new Random(SEED);
+        List<String> queries = new ArrayList<>(count);
+        while (queries.size() < count) {
+            String path = paths.get(random.nextInt(paths.size()));
+            String[] components = path.split("/");
+            String fileName = components[components.length - 1];
+            switch (queries.size() % 3) {
+                case 0:
+                    String component = components[random.nextInt(components.length)];
+                    queries.add(component.substring(0, Math.min(component.length(), 3 + random.nextInt(6))));
+                    break;
+                case 1:
+                    // Every generated path has at least one directory
+                    queries.add(components[components.length - 2] + "/" + fileName.substring(0, 4));
+                    break;
+                default:
+                    queries.add(typo(fileName, random));
+                    break;
+            }
+        }
+        return queries;
+    }
+
+    private static String typo(String word, Random random) {
+        int position = random.nextInt(word.length());
+        return word.substring(0, position) + word.substring(Math.min(word.length(), position + 1));
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.lucene.benchmarks;
+
+import com.example.lucene.analyzer.ConcatenationAnalyzer;
+import com.example.lucene.analyzer.ConcatenationTokenFilter;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Garbage per document of ConcatenationAnalyzer, for title-sized and body-sized texts. Read
+ * {@code gc.alloc.rate.norm}: the buffered filter should stay near zero bytes per document,
+ * while {@code listJoin} rebuilds the filter's previous List-plus-String.join approach as a
+ * baseline. Texts are words of synthetic paths, so most of them survive the stop filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcatenationBenchmark {
+
+    private static final int TEXT_COUNT = 64;
+
+    @Param({"16", "2000"})
+    public int words;
+
+    @Param({"TRUNCATE", "HASH"})
+    public ConcatenationTokenFilter.OverflowPolicy overflowPolicy;
+
+    @Param({"1024"})
+    public int maxTokenLength;
+
+    private Analyzer buffered;
+    private Analyzer listJoin;
+    private List<String> texts;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buffered = new ConcatenationAnalyzer(EnglishAnalyzer.ENGLISH_STOP_WORDS_SET, " ", maxTokenLength, overflowPolicy);
+        listJoin = new ListJoinAnalyzer();
+
+        List<String> corpus = BenchmarkCorpus.paths(TEXT_COUNT * words, 8);
+        texts = new ArrayList<>(TEXT_COUNT);
+        StringBuilder text = new StringBuilder();
+        int path = 0;
+        while (texts.size() < TEXT_COUNT) {
+            text.setLength(0);
+            for (int word = 0; word < words; path++) {
+                for (String component : corpus.get(path % corpus.size()).split("/")) {
+                    if (word++ < words) {
+                        text.append(component).append(' ');
+                    }
+                }
+            }
+            texts.add(text.toString());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        buffered.close();
+        listJoin.close();
+    }
+
+    @Benchmark
+    public void buffered(Blackhole blackhole) throws IOException {
+        consume(buffered, nextText(), blackhole);
+    }
+
+    @Benchmark
+    public void listJoin(Blackhole blackhole) throws IOException {
+        consume(listJoin, nextText(), blackhole);
+    }
+
+    private String nextText() {
+        String text = texts.get(next);
+        next = (next + 1) % texts.size();
+        return text;
+    }
+
+    private static void consume(Analyzer analyzer, String text, Blackhole blackhole) throws IOException {
+        try (TokenStream tokenStream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute term = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                blackhole.consume(term.length());
+            }
+            tokenStream.end();
+        }
+    }
+
+    /**
+     * The same chain as ConcatenationAnalyzer with the unbounded list-and-join filter.
+     */
+    private static final class ListJoinAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = new WhitespaceTokenizer();
+            TokenStream tokenStream = new StopFilter(tokenizer, EnglishAnalyzer.ENGLISH_STOP_WORDS_SET);
+            return new TokenStreamComponents(tokenizer, new ListJoinFilter(tokenStream));
+        }
+    }
+
+    private static final class ListJoinFilter extends TokenFilter {
+        private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+        private boolean concatenated;
+
+        ListJoinFilter(TokenStream input) {
+            super(input);
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            if (concatenated) {
+                return false;
+            }
+            List<String> tokens = new ArrayList<>();
+            while (input.incrementToken()) {
+                tokens.add(termAtt.toString());
+            }
+            if (tokens.isEmpty()) {
+                return false;
+            }
+            clearAttributes();
+            termAtt.setEmpty().append(String.join(" ", tokens));
+            concatenated = true;
+            return true;
+        }
+
+        @Override
+        public void reset() throws IOException {
+            super.reset();
+            concatenated = false;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.lucene.benchmarks;
+
+import com.example.lucene.config.LuceneIndexProperties;
+import com.example.lucene.service.LuceneService;
+import com.example.lucene.service.SearchMode;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency distribution of n-gram and fuzzy searches issued by many threads at once,
+ * with and without intra-query slice concurrency ({@code sliceThreads=0} searches serially).
+ * The result cache is off so every invocation searches the index. A small RAM buffer leaves the
+ * index in several segments, which is what slices are made of. With {@code shards > 1} every
+ * query also fans out to the hash-routed shards and their top hits are merged.
+ *
+ * Example: java -jar target/benchmarks.jar ConcurrentSearchBenchmark -t 32 -p sliceThreads=0,8 -p shards=1,4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ConcurrentSearchBenchmark {
+
+    private static final int QUERY_COUNT = 256;
+
+    @Param({"100000"})
+    public int paths;
+
+    @Param({"8"})
+    public int depth;
+
+    @Param({"0", "4"})
+    public int sliceThreads;
+
+    @Param({"25000"})
+    public int sliceMaxDocs;
+
+    @Param({"16"})
+    public double ramBufferMb;
+
+    @Param({"1"})
+    public int shards;
+
+    private Path root;
+    private LuceneService service;
+    private List<String> queries;
+
+    @Setup(Level.Trial)
+    public void buildIndex() throws IOException, ParseException {
+        List<String> corpus = BenchmarkCorpus.paths(paths, depth);
+        root = BenchmarkCorpus.materialize(corpus);
+        LuceneIndexProperties properties = BenchmarkCorpus.properties(root, LuceneIndexProperties.Analysis.NGRAM);
+        properties.setResultCacheSize(0);
+        properties.setSliceThreads(sliceThreads);
+        properties.setSliceMaxDocs(sliceMaxDocs);
+        properties.getIngest().setRamBufferMb(ramBufferMb);
+        properties.getShards().setCount(shards);
+        service = new LuceneService(properties);
+        service.init();
+        queries = BenchmarkCorpus.queries(corpus, QUERY_COUNT);
+        if (service.search(corpus.get(0), SearchMode.NGRAM).isEmpty()) {
+            throw new IllegalStateException("Index build produced no searchable paths");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        service.close();
+        BenchmarkCorpus.delete(root);
+    }
+
+    @Benchmark
+    public List<String> ngramSearch() throws IOException, ParseException {
+        return service.search(nextQuery(), SearchMode.NGRAM);
+    }
+
+    @Benchmark
+    public List<String> fuzzySearch() throws IOException, ParseException {
+        return service.search(nextQuery(), SearchMode.FUZZY);
+    }
+
+    private String nextQuery() {
+        // Threads pick queries independently so they do not search in lockstep
+        return queries.get(ThreadLocalRandom.current().nextInt(queries.size()));
+    }
+}
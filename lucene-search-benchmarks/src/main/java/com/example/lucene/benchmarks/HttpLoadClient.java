@@ -0,0 +1,147 @@
+package com.example.lucene.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for GET /search on a running server, to compare the server's request
+ * threading modes end to end. Each of {@code concurrency} client threads sends the next request as
+ * soon as the previous response arrived; queries alternate between n-gram and fuzzy mode.
+ *
+ * Usage, with the server and the client on the same synthetic corpus:
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.lucene.benchmarks.HttpLoadClient corpus [paths] [depth]
+ *     materializes the corpus and prints its root, to start the server with --lucene.index.roots=&lt;root&gt;
+ * java -cp target/benchmarks.jar com.example.lucene.benchmarks.HttpLoadClient run &lt;baseUrl&gt; &lt;concurrency&gt; &lt;seconds&gt; [paths] [depth]
+ *     warms up for a third of the duration, then reports throughput and latency percentiles of the
+ *     answered requests, and how many were partial or turned away by the server's load shedding
+ * </pre>
+ */
+public class HttpLoadClient {
+
+    private static final int DEFAULT_PATHS = 100_000;
+    private static final int DEFAULT_DEPTH = 8;
+    private static final int QUERY_COUNT = 256;
+    private static final String[] MODES = {"NGRAM", "FUZZY"};
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 1 && args[0].equals("corpus")) {
+            List<String> corpus = BenchmarkCorpus.paths(intArg(args, 1, DEFAULT_PATHS), intArg(args, 2, DEFAULT_DEPTH));
+            Path root = BenchmarkCorpus.materialize(corpus);
+            System.out.println(root);
+        } else if (args.length >= 4 && args[0].equals("run")) {
+            String baseUrl = args[1];
+            int concurrency = Integer.parseInt(args[2]);
+            Duration duration = Duration.ofSeconds(Long.parseLong(args[3]));
+            List<String> corpus = BenchmarkCorpus.paths(intArg(args, 4, DEFAULT_PATHS), intArg(args, 5, DEFAULT_DEPTH));
+            run(baseUrl, concurrency, duration, BenchmarkCorpus.queries(corpus, QUERY_COUNT));
+        } else {
+            System.err.println("Usage: HttpLoadClient corpus [paths] [depth]");
+            System.err.println("       HttpLoadClient run <baseUrl> <concurrency> <seconds> [paths] [depth]");
+            System.exit(2);
+        }
+    }
+
+    private static void run(String baseUrl, int concurrency, Duration duration, List<String> queries) throws Exception {
+        List<URI> uris = new ArrayList<>();
+        for (int i = 0; i < queries.size(); i++) {
+            uris.add(URI.create(baseUrl + "/search?mode=" + MODES[i % MODES.length]
+                    + "&query=" + URLEncoder.encode(queries.get(i), StandardCharsets.UTF_8)));
+        }
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        long warmupEnd = System.nanoTime() + duration.toNanos() / 3;
+        long end = warmupEnd + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong partial = new AtomicLong();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            results.add(workers.submit(() -> {
+                // Latencies in nanoseconds of the requests sent after the warmup and answered
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (true) {
+                    URI uri = uris.get(ThreadLocalRandom.current().nextInt(uris.size()));
+                    long start = System.nanoTime();
+                    if (start >= end) {
+                        return Arrays.copyOf(latencies, count);
+                    }
+                    boolean measured = start >= warmupEnd;
+                    try {
+                        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri).build(),
+                                HttpResponse.BodyHandlers.discarding());
+                        int status = response.statusCode();
+                        if (status == 429 || status == 503) {
+                            // Rejections answer at once, so they would make the answered requests look faster
+                            if (measured) {
+                                rejected.incrementAndGet();
+                            }
+                            continue;
+                        }
+                        if (status != 200) {
+                            errors.incrementAndGet();
+                        } else if (measured && response.headers().firstValue("X-Partial-Results").isPresent()) {
+                            partial.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    }
+                    if (measured) {
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                }
+            }));
+        }
+
+        List<long[]> perWorker = new ArrayList<>();
+        for (Future<long[]> result : results) {
+            perWorker.add(result.get());
+        }
+        workers.shutdown();
+        long[] all = perWorker.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+
+        System.out.printf("concurrency   %d%n", concurrency);
+        System.out.printf("requests      %d (%d errors, %d partial)%n", all.length, errors.get(), partial.get());
+        System.out.printf("rejected      %d%n", rejected.get());
+        System.out.printf("throughput    %.1f req/s%n", all.length / (duration.toNanos() / 1e9));
+        for (String percentile : new String[] {"50", "90", "99", "99.9"}) {
+            System.out.printf("p%-12s %.2f ms%n", percentile, millis(all, Double.parseDouble(percentile)));
+        }
+        System.out.printf("max           %.2f ms%n", all.length == 0 ? 0 : all[all.length - 1] / 1e6);
+    }
+
+    private static double millis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static int intArg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.lucene.benchmarks;
+
+import com.example.lucene.config.LuceneIndexProperties;
+import com.example.lucene.service.LuceneService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup index build: crawling a materialized corpus and indexing every path through
+ * {@link LuceneService#init()}. Each invocation builds a fresh in-memory index, so the score is
+ * the time for one full build of {@code paths} paths; divide to get paths per second. With
+ * {@code shards > 1} the paths are hashed over that many independent IndexWriters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class IndexingBenchmark {
+
+    @Param({"100000"})
+    public int paths;
+
+    @Param({"8"})
+    public int depth;
+
+    @Param({"NGRAM", "PATH"})
+    public LuceneIndexProperties.Analysis analysis;
+
+    @Param({"1", "4"})
+    public int shards;
+
+    private Path root;
+    private LuceneService service;
+
+    @Setup(Level.Trial)
+    public void createCorpus() throws IOException {
+        root = BenchmarkCorpus.materialize(BenchmarkCorpus.paths(paths, depth));
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeService() throws IOException {
+        if (service != null) {
+            service.close();
+            service = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCorpus() throws IOException {
+        BenchmarkCorpus.delete(root);
+    }
+
+    @Benchmark
+    public LuceneService createIndex() throws IOException {
+        LuceneIndexProperties properties = BenchmarkCorpus.properties(root, analysis);
+        properties.getShards().setCount(shards);
+        service = new LuceneService(properties);
+        service.init();
+        return service;
+    }
+}
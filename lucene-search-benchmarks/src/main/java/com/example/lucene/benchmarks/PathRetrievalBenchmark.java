@@ -0,0 +1,117 @@
+package com.example.lucene.benchmarks;
+
+import com.example.lucene.config.LuceneIndexProperties;
+import com.example.lucene.service.PathDocuments;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning {@code hits} search hits into paths: stored-field document loads, as search results
+ * were resolved before, against the path doc values lookup the service uses now. Path documents
+ * no longer store the path, so the benchmark index adds it as a stored field for the baseline.
+ * Hits are random documents in random order, like the doc ids of a ranked result list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PathRetrievalBenchmark {
+
+    private static final int HIT_SETS = 64;
+    private static final Set<String> PATH_FIELDS = Set.of(PathDocuments.PATH_FIELD);
+
+    @Param({"100000"})
+    public int paths;
+
+    @Param({"8"})
+    public int depth;
+
+    @Param({"10", "100", "1000"})
+    public int hits;
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private ScoreDoc[][] hitSets;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void buildIndex() throws IOException {
+        directory = new ByteBuffersDirectory();
+        try (Analyzer analyzer = PathDocuments.indexAnalyzer(LuceneIndexProperties.Analysis.PATH);
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+            for (String path : BenchmarkCorpus.paths(paths, depth)) {
+                Document document = PathDocuments.create(path);
+                document.add(new StoredField(PathDocuments.PATH_FIELD, path));
+                writer.addDocument(document);
+            }
+        }
+        reader = DirectoryReader.open(directory);
+
+        Random random = new Random(BenchmarkCorpus.SEED);
+        hitSets = new ScoreDoc[HIT_SETS][];
+        for (int set = 0; set < HIT_SETS; set++) {
+            hitSets[set] = new ScoreDoc[hits];
+            for (int i = 0; i < hits; i++) {
+                hitSets[set][i] = new ScoreDoc(random.nextInt(reader.maxDoc()), hits - i);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public List<String> storedFields() throws IOException {
+        ScoreDoc[] scoreDocs = nextHits();
+        StoredFields storedFields = reader.storedFields();
+        List<String> results = new ArrayList<>(scoreDocs.length);
+        for (ScoreDoc scoreDoc : scoreDocs) {
+            results.add(storedFields.document(scoreDoc.doc, PATH_FIELDS).get(PathDocuments.PATH_FIELD));
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<String> docValues() throws IOException {
+        return PathDocuments.readPaths(reader, nextHits());
+    }
+
+    private ScoreDoc[] nextHits() {
+        ScoreDoc[] scoreDocs = hitSets[next];
+        next = (next + 1) % HIT_SETS;
+        return scoreDocs;
+    }
+}
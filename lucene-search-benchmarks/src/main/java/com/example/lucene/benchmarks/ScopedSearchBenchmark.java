@@ -0,0 +1,140 @@
+package com.example.lucene.benchmarks;
+
+import com.example.lucene.config.LuceneIndexProperties;
+import com.example.lucene.service.PathDocuments;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top 10 hits of a query restricted to a directory of {@code scopeDepth} components: the
+ * {@link PrefixQuery} filter scoped searches used before, against the ordinal range filter of
+ * {@link PathDocuments#subtreeQuery}, with the unscoped query as the baseline. The query cache is
+ * off, so every invocation pays for its filter. Depth 1 scopes hold about a sixth of the corpus,
+ * depth 3 scopes a few hundred paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ScopedSearchBenchmark {
+
+    private static final int QUERY_COUNT = 256;
+
+    @Param({"100000"})
+    public int paths;
+
+    @Param({"8"})
+    public int depth;
+
+    @Param({"1", "3"})
+    public int scopeDepth;
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private IndexSearcher searcher;
+    private Query[] queries;
+    private String[] scopes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void buildIndex() throws IOException, ParseException {
+        List<String> corpus = BenchmarkCorpus.paths(paths, depth);
+        directory = new ByteBuffersDirectory();
+        LuceneIndexProperties.Analysis analysis = LuceneIndexProperties.Analysis.PATH;
+        try (Analyzer analyzer = PathDocuments.indexAnalyzer(analysis);
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+            for (String path : corpus) {
+                writer.addDocument(PathDocuments.create(path));
+            }
+        }
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(null);
+
+        // Every query is paired with the directory of another random path, so scopes vary in size
+        List<String> texts = BenchmarkCorpus.queries(corpus, QUERY_COUNT);
+        QueryParser parser = new QueryParser(PathDocuments.CONTENT_FIELD, PathDocuments.queryAnalyzer(analysis));
+        Random random = new Random(BenchmarkCorpus.SEED);
+        queries = new Query[QUERY_COUNT];
+        scopes = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queries[i] = parser.parse(QueryParser.escape(texts.get(i)));
+            String[] components = corpus.get(random.nextInt(corpus.size())).split("/");
+            List<String> scope = new ArrayList<>(Arrays.asList(components).subList(0, components.length - 1));
+            scopes[i] = String.join("/", scope.subList(0, Math.min(scopeDepth, scope.size())));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public TopDocs unscoped() throws IOException {
+        int query = nextQuery();
+        return searcher.search(queries[query], 10);
+    }
+
+    @Benchmark
+    public TopDocs prefixFilter() throws IOException {
+        int query = nextQuery();
+        return searcher.search(filtered(queries[query],
+                new PrefixQuery(new Term(PathDocuments.PATH_FIELD, scopes[query] + "/"))), 10);
+    }
+
+    @Benchmark
+    public TopDocs ordinalRangeFilter() throws IOException {
+        int query = nextQuery();
+        return searcher.search(filtered(queries[query], PathDocuments.subtreeQuery(scopes[query])), 10);
+    }
+
+    private static Query filtered(Query query, Query filter) {
+        return new BooleanQuery.Builder()
+                .add(query, BooleanClause.Occur.MUST)
+                .add(filter, BooleanClause.Occur.FILTER)
+                .build();
+    }
+
+    private int nextQuery() {
+        int query = next;
+        next = (next + 1) % QUERY_COUNT;
+        return query;
+    }
+}
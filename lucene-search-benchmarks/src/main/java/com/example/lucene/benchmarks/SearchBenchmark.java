@@ -0,0 +1,87 @@
+package com.example.lucene.benchmarks;
+
+import com.example.lucene.config.LuceneIndexProperties;
+import com.example.lucene.service.LuceneService;
+import com.example.lucene.service.SearchMode;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded query latency of the n-gram and fuzzy search paths over an index built once
+ * per trial. Every invocation runs the next query from a fixed set sampled from the corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SearchBenchmark {
+
+    private static final int QUERY_COUNT = 256;
+
+    @Param({"100000"})
+    public int paths;
+
+    @Param({"8"})
+    public int depth;
+
+    @Param({"NGRAM"})
+    public LuceneIndexProperties.Analysis analysis;
+
+    private Path root;
+    private LuceneService service;
+    private List<String> queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void buildIndex() throws IOException, ParseException {
+        List<String> corpus = BenchmarkCorpus.paths(paths, depth);
+        root = BenchmarkCorpus.materialize(corpus);
+        service = new LuceneService(BenchmarkCorpus.properties(root, analysis));
+        service.init();
+        queries = BenchmarkCorpus.queries(corpus, QUERY_COUNT);
+        if (service.search(corpus.get(0), SearchMode.NGRAM).isEmpty()) {
+            throw new IllegalStateException("Index build produced no searchable paths");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        service.close();
+        BenchmarkCorpus.delete(root);
+    }
+
+    @Benchmark
+    public List<String> ngramSearch() throws IOException, ParseException {
+        return service.search(nextQuery(), SearchMode.NGRAM);
+    }
+
+    @Benchmark
+    public List<String> fuzzySearch() throws IOException, ParseException {
+        return service.search(nextQuery(), SearchMode.FUZZY);
+    }
+
+    private String nextQuery() {
+        String query = queries.get(next);
+        next = (next + 1) % queries.size();
+        return query;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.lucene.benchmarks;
+
+import com.example.lucene.config.LuceneIndexProperties;
+import com.example.lucene.service.PathDocuments;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top 10 hits of short, broad queries: by relevance, and in {@link PathDocuments#DEPTH_ORDER} on
+ * an index in insertion order and on one sorted the same way. Only the sorted index lets the
+ * collector stop at the tenth hit of each segment; the others score or sort every match.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SortedSearchBenchmark {
+
+    private static final int QUERY_COUNT = 256;
+    private static final int LIMIT = 10;
+
+    @Param({"100000"})
+    public int paths;
+
+    @Param({"8"})
+    public int depth;
+
+    private Directory unsortedDirectory;
+    private Directory sortedDirectory;
+    private DirectoryReader unsortedReader;
+    private DirectoryReader sortedReader;
+    private IndexSearcher unsorted;
+    private IndexSearcher sorted;
+    private Query[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void buildIndexes() throws IOException, ParseException {
+        List<String> corpus = BenchmarkCorpus.paths(paths, depth);
+        LuceneIndexProperties.Analysis analysis = LuceneIndexProperties.Analysis.PATH;
+        unsortedDirectory = buildIndex(corpus, analysis, false);
+        sortedDirectory = buildIndex(corpus, analysis, true);
+        unsortedReader = DirectoryReader.open(unsortedDirectory);
+        sortedReader = DirectoryReader.open(sortedDirectory);
+        unsorted = new IndexSearcher(unsortedReader);
+        sorted = new IndexSearcher(sortedReader);
+        unsorted.setQueryCache(null);
+        sorted.setQueryCache(null);
+
+        // Two characters of a path component match a large share of the corpus
+        List<String> texts = BenchmarkCorpus.queries(corpus, QUERY_COUNT);
+        QueryParser parser = new QueryParser(PathDocuments.CONTENT_FIELD, PathDocuments.queryAnalyzer(analysis));
+        queries = new Query[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            String text = texts.get(i);
+            queries[i] = parser.parse(QueryParser.escape(text.substring(0, Math.min(2, text.length()))));
+        }
+    }
+
+    private static Directory buildIndex(List<String> corpus, LuceneIndexProperties.Analysis analysis,
+                                        boolean sortByDepth) throws IOException {
+        Directory directory = new ByteBuffersDirectory();
+        try (Analyzer analyzer = PathDocuments.indexAnalyzer(analysis)) {
+            IndexWriterConfig config = new IndexWriterConfig(analyzer);
+            if (sortByDepth) {
+                config.setIndexSort(PathDocuments.DEPTH_ORDER);
+            }
+            try (IndexWriter writer = new IndexWriter(directory, config)) {
+                for (String path : corpus) {
+                    writer.addDocument(PathDocuments.create(path));
+                }
+            }
+        }
+        return directory;
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        unsortedReader.close();
+        sortedReader.close();
+        unsortedDirectory.close();
+        sortedDirectory.close();
+    }
+
+    @Benchmark
+    public TopDocs relevance() throws IOException {
+        return unsorted.search(nextQuery(), LIMIT);
+    }
+
+    @Benchmark
+    public TopDocs depthOrderUnsortedIndex() throws IOException {
+        return unsorted.search(nextQuery(), TopFieldCollector.createSharedManager(
+                PathDocuments.DEPTH_ORDER, LIMIT, null, LIMIT));
+    }
+
+    @Benchmark
+    public TopDocs depthOrderSortedIndex() throws IOException {
+        return sorted.search(nextQuery(), TopFieldCollector.createSharedManager(
+                PathDocuments.DEPTH_ORDER, LIMIT, null, LIMIT));
+    }
+
+    private Query nextQuery() {
+        Query query = queries[next];
+        next = (next + 1) % QUERY_COUNT;
+        return query;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.lucene.benchmarks;
+
+import com.example.lucene.config.LuceneIndexProperties;
+import com.example.lucene.service.LuceneService;
+import com.example.lucene.service.SearchMode;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of typeahead lookups: what one keystroke costs through the prefix suggester
+ * versus a full n-gram search for the same prefix. Prefixes are the first 1 to {@code maxPrefix}
+ * characters of components sampled from the corpus. The result cache is off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SuggestBenchmark {
+
+    private static final int PREFIX_COUNT = 256;
+
+    @Param({"100000"})
+    public int paths;
+
+    @Param({"8"})
+    public int depth;
+
+    @Param({"3"})
+    public int maxPrefix;
+
+    private Path root;
+    private LuceneService service;
+    private List<String> prefixes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void buildIndex() throws IOException {
+        List<String> corpus = BenchmarkCorpus.paths(paths, depth);
+        root = BenchmarkCorpus.materialize(corpus);
+        LuceneIndexProperties properties = BenchmarkCorpus.properties(root, LuceneIndexProperties.Analysis.NGRAM);
+        properties.setResultCacheSize(0);
+        service = new LuceneService(properties);
+        service.init();
+
+        Random random = new Random(BenchmarkCorpus.SEED);
+        prefixes = new ArrayList<>(PREFIX_COUNT);
+        while (prefixes.size() < PREFIX_COUNT) {
+            String[] components = corpus.get(random.nextInt(corpus.size())).split("/");
+            String component = components[random.nextInt(components.length)];
+            prefixes.add(component.substring(0, Math.min(component.length(), 1 + random.nextInt(maxPrefix))));
+        }
+        if (service.suggest(prefixes.get(0), 10).isEmpty()) {
+            throw new IllegalStateException("Suggester produced no suggestions");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        service.close();
+        BenchmarkCorpus.delete(root);
+    }
+
+    @Benchmark
+    public List<String> suggest() throws IOException {
+        return service.suggest(nextPrefix(), 10);
+    }
+
+    @Benchmark
+    public List<String> ngramSearch() throws IOException, ParseException {
+        return service.search(nextPrefix(), SearchMode.NGRAM, 10);
+    }
+
+    private String nextPrefix() {
+        String prefix = prefixes.get(next);
+        next = (next + 1) % prefixes.size();
+        return prefix;
+    }
+}